@@ -0,0 +1,52 @@
+package io.github.bymartrixx.yarncli;
+
+import com.google.gson.Gson;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * Loads the bundled {@code fixture.tiny}, a generated Yarn-like mappings file with 400 classes, so the benchmarks run
+ * without the network or a Minecraft install.
+ */
+final class Fixtures {
+    static final String VERSION = "fixture";
+
+    private Fixtures() {
+    }
+
+    static byte[] readTiny() throws IOException {
+        try (InputStream inputStream = Fixtures.class.getResourceAsStream("/fixture.tiny")) {
+            if (inputStream == null) {
+                throw new FileNotFoundException("fixture.tiny");
+            }
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+
+            return outputStream.toByteArray();
+        }
+    }
+
+    static byte[] writeMappingsFile(byte[] tiny) throws IOException {
+        MappingsFile.ParsedMappings parsed = MappingsFile.parse(new ByteArrayInputStream(tiny), null);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        MappingsFile.write(parsed.tree, tiny.length, 0, parsed.checksum, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * @return a manager with the fixture mappings cached as {@link #VERSION}, which never touches the network
+     */
+    static MappingsManager createManager() throws IOException {
+        MappingsCache cache = new MappingsCache(1);
+        cache.put(VERSION, new VersionMappings(ByteBuffer.wrap(writeMappingsFile(readTiny()))));
+
+        VersionResolver versionResolver = new VersionResolver(new Gson(), null, VersionResolver.YARN_URL, VersionResolver.LAUNCHERMETA_URL, null, 0);
+        return new MappingsManager(new Downloader(), versionResolver, cache);
+    }
+}
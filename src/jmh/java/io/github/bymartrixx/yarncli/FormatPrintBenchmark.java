@@ -0,0 +1,58 @@
+package io.github.bymartrixx.yarncli;
+
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders lookup results with {@link YarnCli#formatPrint(String, List)}, including escape codes, to a stream that
+ * discards them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FormatPrintBenchmark {
+    private List<MappingsResult> classResults;
+    private List<MappingsResult> methodResults;
+
+    @Setup
+    public void setup() throws IOException {
+        MappingsManager mappingsManager = Fixtures.createManager();
+        this.classResults = mappingsManager.getClassMappings(Fixtures.VERSION, "StateRandom0");
+        this.methodResults = mappingsManager.getMethodMappings(Fixtures.VERSION, "tick");
+
+        OutputUtil.setAnsi(true);
+        OutputUtil.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    @Benchmark
+    public void singleClass() {
+        YarnCli.formatPrint(Fixtures.VERSION, this.classResults);
+        OutputUtil.flush();
+    }
+
+    /**
+     * 400 method results.
+     */
+    @Benchmark
+    public void manyMethods() {
+        YarnCli.formatPrint(Fixtures.VERSION, this.methodResults);
+        OutputUtil.flush();
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.bymartrixx.yarncli;
+
+import net.fabricmc.mapping.tree.TinyMappingFactory;
+import net.fabricmc.mapping.tree.TinyTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The steps of loading a version: parsing the {@code .tiny} file, building the {@link MappingsFile} with its indexes
+ * and opening it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoadBenchmark {
+    private byte[] tiny;
+    private TinyTree tree;
+    private byte[] mappingsFile;
+
+    @Setup
+    public void setup() throws IOException {
+        this.tiny = Fixtures.readTiny();
+        this.tree = this.parseTiny();
+        this.mappingsFile = Fixtures.writeMappingsFile(this.tiny);
+    }
+
+    @Benchmark
+    public TinyTree parseTiny() throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(this.tiny), StandardCharsets.UTF_8));
+        return TinyMappingFactory.loadWithDetection(reader);
+    }
+
+    @Benchmark
+    public byte[] buildMappingsFile() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(this.mappingsFile.length);
+        MappingsFile.write(this.tree, this.tiny.length, 0, 0, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public VersionMappings openMappingsFile() {
+        return new VersionMappings(ByteBuffer.wrap(this.mappingsFile));
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.bymartrixx.yarncli;
+
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+import io.github.bymartrixx.yarncli.object.SearchResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups against cached mappings. Run with {@code -prof gc} (the default in {@code build.gradle}) to see the bytes
+ * allocated per lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QueryBenchmark {
+    private MappingsManager mappingsManager;
+
+    @Setup
+    public void setup() throws IOException {
+        this.mappingsManager = Fixtures.createManager();
+        this.mappingsManager.search(Fixtures.VERSION, "", 1);
+    }
+
+    /**
+     * A suffix matching a single class.
+     */
+    @Benchmark
+    public List<MappingsResult> classSuffix() {
+        return this.mappingsManager.getClassMappings(Fixtures.VERSION, "StateRandom0");
+    }
+
+    /**
+     * A suffix matching every official name ending with {@code a}, about one in 26 classes.
+     */
+    @Benchmark
+    public List<MappingsResult> classSuffixMany() {
+        return this.mappingsManager.getClassMappings(Fixtures.VERSION, "a");
+    }
+
+    /**
+     * An intermediary id, which is prefixed with {@code class_}.
+     */
+    @Benchmark
+    public List<MappingsResult> classIntermediaryId() {
+        return this.mappingsManager.getClassMappings(Fixtures.VERSION, "42");
+    }
+
+    @Benchmark
+    public List<MappingsResult> fieldName() {
+        return this.mappingsManager.getFieldMappings(Fixtures.VERSION, "speedDamage");
+    }
+
+    @Benchmark
+    public List<MappingsResult> fieldIntermediaryId() {
+        return this.mappingsManager.getFieldMappings(Fixtures.VERSION, "2001");
+    }
+
+    /**
+     * A name shared by every class.
+     */
+    @Benchmark
+    public List<MappingsResult> methodNameMany() {
+        return this.mappingsManager.getMethodMappings(Fixtures.VERSION, "tick");
+    }
+
+    @Benchmark
+    public List<MappingsResult> methodIntermediaryId() {
+        return this.mappingsManager.getMethodMappings(Fixtures.VERSION, "1001");
+    }
+
+    /**
+     * A misspelled name, the trigram index is built in {@link #setup()}.
+     */
+    @Benchmark
+    public List<SearchResult> search() {
+        return this.mappingsManager.search(Fixtures.VERSION, "stateRandm", 10);
+    }
+}
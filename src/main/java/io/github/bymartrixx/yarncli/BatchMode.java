@@ -0,0 +1,132 @@
+package io.github.bymartrixx.yarncli;
+
+import io.github.bymartrixx.yarncli.object.MappingsQuery;
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Runs {@code class}, {@code field} and {@code method} queries read one per line, writing every result to a
+ * {@link ResultWriter}, without any terminal formatting. Empty lines and lines starting with {@code #} are skipped.
+ */
+public class BatchMode {
+    /**
+     * How many queries are read before running them in parallel.
+     */
+    private static final int CHUNK_SIZE = 4096;
+
+    private final MappingsManager mappingsManager;
+    private final String mcVersion;
+
+    public BatchMode(MappingsManager mappingsManager, String mcVersion) {
+        this.mappingsManager = mappingsManager;
+        this.mcVersion = mcVersion;
+    }
+
+    /**
+     * @return the number of lines that couldn't be processed, or {@code -1} if there are no mappings for the version
+     */
+    public int run(BufferedReader input, ResultWriter output) throws IOException {
+        List<MappingsQuery> queries = new ArrayList<>(CHUNK_SIZE);
+        int lineNumber = 0;
+        int failed = 0;
+
+        String line;
+        while ((line = input.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] args = line.split("\\s+", 2);
+            if (args.length < 2) {
+                System.err.printf("Line %d: missing query: %s%n", lineNumber, line);
+                failed++;
+                continue;
+            }
+
+            MappingsResult.Type type = parseType(args[0]);
+            if (type == null) {
+                System.err.printf("Line %d: unknown command \"%s\"%n", lineNumber, args[0]);
+                failed++;
+                continue;
+            }
+
+            if (NamePattern.isPattern(args[1])) {
+                try {
+                    NamePattern.compile(args[1]);
+                } catch (IllegalArgumentException e) {
+                    System.err.printf("Line %d: invalid pattern: %s%n", lineNumber, e.getMessage());
+                    failed++;
+                    continue;
+                }
+            }
+
+            queries.add(new MappingsQuery(type, args[1]));
+            if (queries.size() == CHUNK_SIZE && !this.runQueries(queries, output)) {
+                return -1;
+            }
+        }
+
+        if (!this.runQueries(queries, output)) {
+            return -1;
+        }
+
+        output.flush();
+        return failed;
+    }
+
+    /**
+     * Runs and clears {@code queries}, writing the results in order.
+     *
+     * @return {@code false} if there are no mappings for the version
+     */
+    private boolean runQueries(List<MappingsQuery> queries, ResultWriter output) throws IOException {
+        if (queries.isEmpty()) {
+            return true;
+        }
+
+        List<List<MappingsResult>> results = this.mappingsManager.getMappings(this.mcVersion, queries);
+        if (results == null) {
+            System.err.printf("Unable to find Yarn mappings for %s%n", this.mcVersion);
+            return false;
+        }
+
+        for (int i = 0; i < queries.size(); i++) {
+            for (MappingsResult result : results.get(i)) {
+                output.write(queries.get(i).query, result);
+            }
+        }
+
+        queries.clear();
+        return true;
+    }
+
+    /**
+     * @return the type of results a query command looks up, or {@code null} if it isn't a query command
+     */
+    @Nullable
+    public static MappingsResult.Type parseType(String command) {
+        switch (command.toLowerCase(Locale.ROOT)) {
+            case "class":
+            case "yc":
+            case "c":
+                return MappingsResult.Type.CLASS;
+            case "field":
+            case "yf":
+            case "f":
+                return MappingsResult.Type.FIELD;
+            case "method":
+            case "ym":
+            case "m":
+                return MappingsResult.Type.METHOD;
+            default:
+                return null;
+        }
+    }
+}
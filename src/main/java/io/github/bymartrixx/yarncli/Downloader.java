@@ -0,0 +1,241 @@
+package io.github.bymartrixx.yarncli;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.http.HttpStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Owns the HTTP client shared by every request, which keeps connections alive and reuses them, and downloads files
+ * checked against the Maven {@code .sha1} checksum, either to disk, resuming interrupted downloads, or streamed.
+ */
+public class Downloader {
+    public static final int MAX_CONNECTIONS = 16;
+    public static final int MAX_CONNECTIONS_PER_HOST = 8;
+
+    private final CloseableHttpClient client;
+
+    public Downloader() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(MAX_CONNECTIONS);
+        connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_HOST);
+
+        this.client = HttpClients.custom().setConnectionManager(connectionManager).build();
+    }
+
+    public CloseableHttpClient getClient() {
+        return this.client;
+    }
+
+    /**
+     * Downloads {@code url} to {@code target}. Data is written to a temporary file with a unique name next to the
+     * target, so downloads of the same file don't write to the same file, and moved into place once it is complete and
+     * checked against {@code url + ".sha1"}, if the server has it. A download that fails is kept as a {@code .part} file,
+     * which the next download claims and resumes from its end with a range request.
+     *
+     * @throws IOException if the download fails or the checksum doesn't match, in which case the downloaded data is
+     * deleted
+     */
+    public void download(String url, Path target) throws IOException {
+        Path partPath = target.resolveSibling(target.getFileName() + ".part");
+        Path tmpPath = MappingsFile.createTempFile(target);
+        String expected;
+        try {
+            try {
+                // Only one download can move the partial file, the others start over
+                Files.move(partPath, tmpPath, StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException ignored) {
+            }
+
+            long existing = Files.size(tmpPath);
+            HttpGet request = new HttpGet(url);
+            if (existing > 0) {
+                request.addHeader("Range", "bytes=" + existing + "-");
+            }
+
+            try (CloseableHttpResponse response = this.client.execute(request)) {
+                int code = response.getCode();
+                if (code == HttpStatus.SC_OK || code == HttpStatus.SC_PARTIAL_CONTENT) {
+                    boolean append = code == HttpStatus.SC_PARTIAL_CONTENT;
+                    try (InputStream inputStream = response.getEntity().getContent();
+                         OutputStream outputStream = Files.newOutputStream(tmpPath, StandardOpenOption.WRITE,
+                                 append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING)) {
+                        copy(inputStream, outputStream);
+                    }
+                } else if (code != HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE || existing == 0) {
+                    // 416 means the partial file is already complete
+                    throw new IOException(String.format("Unexpected response code %d from %s", code, url));
+                }
+            }
+
+            expected = this.fetchSha1(url);
+        } catch (IOException e) {
+            keepPartial(tmpPath, partPath);
+            throw e;
+        }
+
+        if (expected != null && !expected.equals(sha1(tmpPath))) {
+            Files.deleteIfExists(tmpPath);
+            throw new IOException("Checksum mismatch for " + url);
+        }
+
+        Files.move(tmpPath, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Keeps the data of a failed download as the partial file for the next download to resume, or deletes it if there
+     * is none.
+     */
+    private static void keepPartial(Path tmpPath, Path partPath) {
+        try {
+            if (Files.size(tmpPath) > 0) {
+                Files.move(tmpPath, partPath, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                Files.delete(tmpPath);
+            }
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tmpPath);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Streams the zip file at {@code url}, handing the entry named {@code entryName} to {@code reader} as it is
+     * downloaded, without storing the zip file. The whole download is checked against {@code url + ".sha1"}, if the
+     * server has it, once the reader is done.
+     *
+     * @return what {@code reader} returned
+     * @throws IOException if the download fails, the entry is missing or the checksum doesn't match. Anything the
+     * reader stored should be discarded
+     */
+    public <T> T downloadEntry(String url, String entryName, EntryReader<T> reader) throws IOException {
+        MessageDigest digest = sha1Digest();
+        T result = null;
+        boolean found = false;
+
+        try (CloseableHttpResponse response = this.client.execute(new HttpGet(url))) {
+            if (response.getCode() != HttpStatus.SC_OK) {
+                throw new IOException(String.format("Unexpected response code %d from %s", response.getCode(), url));
+            }
+
+            try (InputStream inputStream = new DigestInputStream(response.getEntity().getContent(), digest)) {
+                ZipInputStream zipInputStream = new ZipInputStream(inputStream);
+                ZipEntry entry;
+                while ((entry = zipInputStream.getNextEntry()) != null) {
+                    if (!found && entry.getName().equals(entryName)) {
+                        result = reader.read(zipInputStream);
+                        found = true;
+                    }
+                }
+
+                // Read the central directory too, so the digest covers the whole file
+                copy(inputStream, new OutputStream() {
+                    @Override
+                    public void write(int b) {
+                    }
+
+                    @Override
+                    public void write(byte[] b, int off, int len) {
+                    }
+                });
+            }
+        }
+
+        if (!found) {
+            throw new IOException(String.format("No %s in %s", entryName, url));
+        }
+
+        String expected = this.fetchSha1(url);
+        if (expected != null && !expected.equals(hex(digest.digest()))) {
+            throw new IOException("Checksum mismatch for " + url);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the lowercase hex SHA-1 published for {@code url}, or {@code null} if there isn't one
+     */
+    @Nullable
+    private String fetchSha1(String url) throws IOException {
+        try (CloseableHttpResponse response = this.client.execute(new HttpGet(url + ".sha1"))) {
+            if (response.getCode() != HttpStatus.SC_OK) {
+                return null;
+            }
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            try (InputStream inputStream = response.getEntity().getContent()) {
+                copy(inputStream, outputStream);
+            }
+
+            String sha1 = new String(outputStream.toByteArray(), StandardCharsets.US_ASCII).trim();
+            int end = sha1.indexOf(' '); // Some checksum files are followed by the file name
+            return (end == -1 ? sha1 : sha1.substring(0, end)).toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static String sha1(Path path) throws IOException {
+        MessageDigest digest = sha1Digest();
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        return hex(digest.digest());
+    }
+
+    private static MessageDigest sha1Digest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e); // Should not happen, every JVM has SHA-1
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+
+        return hex.toString();
+    }
+
+    private static void copy(InputStream inputStream, OutputStream outputStream) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryReader<T> {
+        /**
+         * Reads a zip entry. The stream must not be closed.
+         */
+        T read(InputStream inputStream) throws IOException;
+    }
+}
@@ -0,0 +1,554 @@
+package io.github.bymartrixx.yarncli;
+
+import io.github.bymartrixx.yarncli.object.HistoryEntry;
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * A persistent index of the official and named names of every class, field and method, by the number in their
+ * intermediary name, in every version indexed so far. The names of one of them in every version are read from the
+ * index alone, without loading the mappings of each version.
+ *
+ * <p>The file starts with {@link #MAGIC} and {@link #FORMAT_VERSION}, followed by a segment for each version, which
+ * is appended when the version is indexed:</p>
+ *
+ * <pre>
+ * int    SEGMENT_MAGIC
+ * int    the length of the rest of the segment
+ * string the Minecraft version
+ * string the Yarn version
+ * int    the number of new strings, followed by the strings, which get the next string ids
+ * for classes, fields and methods:
+ *   int  the number of rows, n
+ *   int  the official name string ids, by intermediary number [n]
+ *   int  the named name string ids, by intermediary number [n]
+ * </pre>
+ *
+ * <p>Strings are stored as their UTF-8 length followed by the UTF-8 bytes, and are shared by every version after the
+ * one that added them. A string id of {@code -1} means the version has no class, field or method with that number.
+ * A version indexed again with a different Yarn version replaces its older segment: the index is rewritten to a
+ * temporary file without it, which is moved over the index. A partially written or malformed segment ends the file,
+ * and is overwritten by the next one.</p>
+ */
+public class HistoryIndex {
+    public static final String FILE_NAME = "history.yidx";
+    public static final int MAGIC = 0x59484958; // YHIX
+    public static final int FORMAT_VERSION = 1;
+    private static final int SEGMENT_MAGIC = 0x5345474D; // SEGM
+    private static final int HEADER_SIZE = 8;
+    private static final int TYPE_COUNT = MappingsResult.Type.values().length;
+
+    private final Path path;
+    /**
+     * The contents last read from the file, read again once the file changes.
+     */
+    private volatile Contents contents;
+    /**
+     * The ids of the strings in the file, built when a version is first added.
+     */
+    private StringIds stringIds;
+
+    public HistoryIndex(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * @return the official and named names of the class, field or method with the intermediary name ending in
+     * {@code number} in each indexed version that has it, in the order the versions were indexed
+     */
+    public List<HistoryEntry> get(MappingsResult.Type type, int number) throws IOException {
+        Contents contents = this.getContents();
+        List<HistoryEntry> entries = new ArrayList<>();
+        for (Version version : contents.versions.values()) {
+            String official = contents.getName(version, type, number, 0);
+            if (official != null) {
+                entries.add(new HistoryEntry(version.mcVersion, version.yarnVersion, official, contents.getName(version, type, number, 2)));
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * @return the indexed Minecraft versions
+     */
+    public Set<String> getVersions() throws IOException {
+        return Collections.unmodifiableSet(this.getContents().versions.keySet());
+    }
+
+    /**
+     * Adds the names in {@code mappings} to the index, unless the version is already indexed with the same Yarn
+     * version. A version indexed again replaces its older segment, by rewriting the index without it. Writers hold a
+     * lock on a file next to the index, so several processes can add versions to it.
+     */
+    public synchronized void add(String mcVersion, String yarnVersion, VersionMappings mappings) throws IOException {
+        Version indexed = this.getContents().versions.get(mcVersion);
+        if (indexed != null && indexed.yarnVersion.equals(yarnVersion)) {
+            return;
+        }
+
+        // The index file itself is replaced when it is compacted, so the lock can't be held on it
+        Path lockPath = this.path.resolveSibling(this.path.getFileName() + ".lock");
+        try (FileChannel lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = lockChannel.lock();
+             FileChannel channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Another process may have written to the file
+            Contents contents = this.read(channel);
+            indexed = contents.versions.get(mcVersion);
+            if (indexed != null && indexed.yarnVersion.equals(yarnVersion)) {
+                this.contents = contents;
+                return;
+            }
+
+            if (indexed != null && this.compact(contents, mcVersion, yarnVersion, mappings)) {
+                this.contents = this.readFile();
+                return;
+            }
+
+            long end = contents.end;
+            if (end == 0) { // A new or unreadable file
+                channel.truncate(0);
+                end = write(channel, ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).array(), 0);
+                this.stringIds = null;
+            }
+
+            // Strings already in the index get their ids, which are only read again if another process rewrote it
+            if (this.stringIds == null || !Objects.equals(this.stringIds.fileKey, contents.fileKey) || this.stringIds.count > contents.stringCount) {
+                this.stringIds = new StringIds(contents.fileKey);
+            }
+            while (this.stringIds.count < contents.stringCount) {
+                this.stringIds.ids.put(contents.getString(this.stringIds.count), this.stringIds.count++);
+            }
+
+            byte[] segment = encodeSegment(mcVersion, yarnVersion, names(mappings), this.stringIds);
+            channel.truncate(end); // Drop a partially written or malformed segment
+            write(channel, segment, end);
+            channel.force(false);
+
+            this.contents = this.read(channel);
+        } catch (IOException | RuntimeException e) {
+            this.stringIds = null; // The strings may not have been stored
+            throw e;
+        }
+    }
+
+    /**
+     * Rewrites the index to a temporary file with the segments of every version but {@code mcVersion}, followed by the
+     * new segment of {@code mcVersion}, and moves it over the index. The strings are numbered again, dropping the ones
+     * only the old segment used.
+     *
+     * @return whether the index was replaced, which fails on systems that don't replace files mapped by another
+     * process, in which case the new segment should be appended instead
+     */
+    private boolean compact(Contents contents, String mcVersion, String yarnVersion, VersionMappings mappings) throws IOException {
+        StringIds strings = new StringIds(null);
+        Path tmpPath = MappingsFile.createTempFile(this.path);
+        try {
+            try (FileChannel output = FileChannel.open(tmpPath, StandardOpenOption.WRITE)) {
+                long position = write(output, ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION).array(), 0);
+                for (Version version : contents.versions.values()) {
+                    if (!version.mcVersion.equals(mcVersion)) {
+                        position = write(output, encodeSegment(version.mcVersion, version.yarnVersion, contents.names(version), strings), position);
+                    }
+                }
+
+                write(output, encodeSegment(mcVersion, yarnVersion, names(mappings), strings), position);
+                output.force(false);
+            }
+
+            try {
+                Files.move(tmpPath, this.path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                return false;
+            }
+
+            this.stringIds = null;
+            return true;
+        } finally {
+            Files.deleteIfExists(tmpPath);
+        }
+    }
+
+    /**
+     * Encodes the segment of a version, giving ids to the strings that aren't in {@code strings} yet.
+     */
+    private static byte[] encodeSegment(String mcVersion, String yarnVersion, Names names, StringIds strings) throws IOException {
+        List<String> newStrings = new ArrayList<>();
+        ByteArrayOutputStream columns = new ByteArrayOutputStream();
+        DataOutputStream columnsOutput = new DataOutputStream(columns);
+        for (MappingsResult.Type type : MappingsResult.Type.values()) {
+            int rows = names.getRows(type);
+            int[] official = new int[rows];
+            int[] named = new int[rows];
+            for (int number = 0; number < rows; number++) {
+                String officialName = names.getName(type, number, 0);
+                if (officialName == null) {
+                    official[number] = -1;
+                    named[number] = -1;
+                } else {
+                    official[number] = strings.getId(officialName, newStrings);
+                    named[number] = strings.getId(names.getName(type, number, 2), newStrings);
+                }
+            }
+
+            columnsOutput.writeInt(rows);
+            for (int stringId : official) {
+                columnsOutput.writeInt(stringId);
+            }
+            for (int stringId : named) {
+                columnsOutput.writeInt(stringId);
+            }
+        }
+        columnsOutput.flush();
+
+        ByteArrayOutputStream segment = new ByteArrayOutputStream(columns.size() + newStrings.size() * 24 + 64);
+        DataOutputStream output = new DataOutputStream(segment);
+        output.writeInt(SEGMENT_MAGIC);
+        output.writeInt(0); // The length, set below
+        writeString(output, mcVersion);
+        writeString(output, yarnVersion);
+        output.writeInt(newStrings.size());
+        for (String string : newStrings) {
+            writeString(output, string);
+        }
+        columns.writeTo(output);
+        output.flush();
+
+        byte[] bytes = segment.toByteArray();
+        ByteBuffer.wrap(bytes).putInt(4, bytes.length - 8);
+        return bytes;
+    }
+
+    private static Names names(VersionMappings mappings) {
+        return new Names() {
+            @Override
+            public int getRows(MappingsResult.Type type) {
+                return mappings.getIntermediaryLimit(type);
+            }
+
+            @Override
+            public String getName(MappingsResult.Type type, int number, int namespace) {
+                int id = mappings.findIntermediary(type, number);
+                return id == -1 ? null : mappings.getName(type, id, namespace);
+            }
+        };
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * @return the position after the written bytes
+     */
+    private static long write(FileChannel channel, byte[] bytes, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+
+        return position;
+    }
+
+    /**
+     * @return the contents of the file, read again if its size or modification time changed since they were last read,
+     * like when another process added a version
+     */
+    private Contents getContents() throws IOException {
+        Contents contents = this.contents;
+        if (contents == null || contents.isStale(this.path)) {
+            synchronized (this) {
+                contents = this.contents;
+                if (contents == null || contents.isStale(this.path)) {
+                    contents = this.readFile();
+                    this.contents = contents;
+                }
+            }
+        }
+
+        return contents;
+    }
+
+    private Contents readFile() throws IOException {
+        if (!Files.isRegularFile(this.path)) {
+            return this.read(null);
+        }
+
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+            return this.read(channel);
+        }
+    }
+
+    /**
+     * Maps the file and reads the segment headers, stopping at a partially written or malformed segment.
+     *
+     * @param channel the file, or {@code null} if it doesn't exist
+     */
+    private Contents read(FileChannel channel) throws IOException {
+        // Taken before reading, so a change made while reading is seen by the next check
+        BasicFileAttributes attributes = channel == null ? null : Files.readAttributes(this.path, BasicFileAttributes.class);
+        long modified = attributes == null ? -1 : attributes.lastModifiedTime().toMillis();
+        Object fileKey = attributes == null ? null : attributes.fileKey();
+        long size = channel == null ? -1 : channel.size();
+        ByteBuffer buffer = channel == null || size < HEADER_SIZE ? ByteBuffer.allocate(0)
+                : channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            return new Contents(buffer, size, modified, fileKey, 0, Collections.emptyMap(), new int[0], 0);
+        }
+
+        Map<String, Version> versions = new LinkedHashMap<>();
+        IntList stringOffsets = new IntList(1024);
+        int position = HEADER_SIZE;
+        while (position + 8 <= buffer.limit() && buffer.getInt(position) == SEGMENT_MAGIC) {
+            int length = buffer.getInt(position + 4);
+            long end = (long) position + 8 + length;
+            if (length < 0 || end > buffer.limit()) {
+                break;
+            }
+
+            int stringCount = stringOffsets.size();
+            Version version = readSegment(buffer, position + 8, (int) end, stringOffsets);
+            if (version == null) {
+                stringOffsets.truncate(stringCount);
+                break;
+            }
+
+            versions.remove(version.mcVersion); // Keep the versions in the order they were last indexed
+            versions.put(version.mcVersion, version);
+            position = (int) end;
+        }
+
+        return new Contents(buffer, size, modified, fileKey, position, versions, stringOffsets.values(), stringOffsets.size());
+    }
+
+    /**
+     * Reads the segment between {@code offset} and {@code end}, adding the offsets of its new strings to
+     * {@code stringOffsets}.
+     *
+     * @return the version, or {@code null} if a string or column doesn't fit in the segment
+     */
+    @Nullable
+    private static Version readSegment(ByteBuffer buffer, int offset, int end, IntList stringOffsets) {
+        int mcVersionOffset = offset;
+        int yarnVersionOffset = skipString(buffer, mcVersionOffset, end);
+        offset = skipString(buffer, yarnVersionOffset, end);
+        if (offset == -1 || offset > end - 4) {
+            return null;
+        }
+
+        int newStrings = buffer.getInt(offset);
+        offset += 4;
+        if (newStrings < 0) {
+            return null;
+        }
+
+        for (int i = 0; i < newStrings; i++) {
+            stringOffsets.add(offset);
+            offset = skipString(buffer, offset, end);
+            if (offset == -1) {
+                return null;
+            }
+        }
+
+        int[] rows = new int[TYPE_COUNT];
+        int[] columns = new int[TYPE_COUNT];
+        for (int type = 0; type < TYPE_COUNT; type++) {
+            if (offset > end - 4) {
+                return null;
+            }
+
+            rows[type] = buffer.getInt(offset);
+            columns[type] = offset + 4;
+            if (rows[type] < 0 || rows[type] > (end - columns[type]) / 8) {
+                return null;
+            }
+
+            offset = columns[type] + rows[type] * 8;
+        }
+
+        return new Version(readString(buffer, mcVersionOffset), readString(buffer, yarnVersionOffset), rows, columns);
+    }
+
+    /**
+     * @return where the string at {@code offset} ends, or {@code -1} if it doesn't fit before {@code end} or
+     * {@code offset} is {@code -1}
+     */
+    private static int skipString(ByteBuffer buffer, int offset, int end) {
+        if (offset == -1 || offset > end - 4) {
+            return -1;
+        }
+
+        int length = buffer.getInt(offset);
+        return length < 0 || length > end - offset - 4 ? -1 : offset + 4 + length;
+    }
+
+    private static String readString(ByteBuffer buffer, int offset) {
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(offset + 4);
+        slice.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Contents {
+        final ByteBuffer buffer;
+        /**
+         * The size and modification time of the file when it was read, or {@code -1} if it didn't exist.
+         */
+        final long size;
+        final long modified;
+        /**
+         * Identifies the file when it was read, which changes when it is replaced, or {@code null}.
+         *
+         * @see BasicFileAttributes#fileKey()
+         */
+        @Nullable
+        final Object fileKey;
+        /**
+         * Where the last complete segment ends, or {@code 0} if the file is missing or invalid.
+         */
+        final long end;
+        final Map<String, Version> versions;
+        final int[] stringOffsets;
+        final int stringCount;
+
+        Contents(ByteBuffer buffer, long size, long modified, @Nullable Object fileKey, long end, Map<String, Version> versions, int[] stringOffsets,
+                 int stringCount) {
+            this.buffer = buffer;
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+            this.end = end;
+            this.versions = versions;
+            this.stringOffsets = stringOffsets;
+            this.stringCount = stringCount;
+        }
+
+        String getString(int id) {
+            return readString(this.buffer, this.stringOffsets[id]);
+        }
+
+        /**
+         * @param namespace {@code 0} for the official name, {@code 2} for the named name
+         * @return the name of the class, field or method with {@code number} in a version, or {@code null} if it
+         * doesn't have one. String ids outside the strings, which a corrupted file could have, are skipped too
+         */
+        @Nullable
+        String getName(Version version, MappingsResult.Type type, int number, int namespace) {
+            int rows = version.rows[type.ordinal()];
+            if (number < 0 || number >= rows) {
+                return null;
+            }
+
+            int column = version.columns[type.ordinal()];
+            int official = this.buffer.getInt(column + number * 4);
+            int named = this.buffer.getInt(column + (rows + number) * 4);
+            if (official < 0 || official >= this.stringCount || named < 0 || named >= this.stringCount) {
+                return null;
+            }
+
+            return this.getString(namespace == 0 ? official : named);
+        }
+
+        Names names(Version version) {
+            return new Names() {
+                @Override
+                public int getRows(MappingsResult.Type type) {
+                    return version.rows[type.ordinal()];
+                }
+
+                @Override
+                public String getName(MappingsResult.Type type, int number, int namespace) {
+                    return Contents.this.getName(version, type, number, namespace);
+                }
+            };
+        }
+
+        /**
+         * @return whether the file at {@code path} changed or was replaced since these contents were read from it
+         */
+        boolean isStale(Path path) throws IOException {
+            if (!Files.isRegularFile(path)) {
+                return this.size != -1;
+            }
+
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return attributes.size() != this.size || attributes.lastModifiedTime().toMillis() != this.modified
+                    || !Objects.equals(attributes.fileKey(), this.fileKey);
+        }
+    }
+
+    /**
+     * The names of a version by intermediary number, as stored in a segment.
+     */
+    private interface Names {
+        int getRows(MappingsResult.Type type);
+
+        /**
+         * @param namespace {@code 0} for the official name, {@code 2} for the named name
+         * @return the name, or {@code null} if the version has no class, field or method with {@code number}
+         */
+        @Nullable
+        String getName(MappingsResult.Type type, int number, int namespace);
+    }
+
+    /**
+     * The ids given to strings, in the order they were added to the index.
+     */
+    private static class StringIds {
+        final Map<String, Integer> ids = new HashMap<>();
+        /**
+         * The file the ids were read from.
+         */
+        @Nullable
+        final Object fileKey;
+        int count;
+
+        StringIds(@Nullable Object fileKey) {
+            this.fileKey = fileKey;
+        }
+
+        int getId(String string, List<String> newStrings) {
+            Integer id = this.ids.get(string);
+            if (id == null) {
+                id = this.count++;
+                this.ids.put(string, id);
+                newStrings.add(string);
+            }
+
+            return id;
+        }
+    }
+
+    private static class Version {
+        final String mcVersion;
+        final String yarnVersion;
+        /**
+         * The number of rows and the start of the official names column, by {@link MappingsResult.Type} ordinal. The
+         * named names column follows it.
+         */
+        final int[] rows;
+        final int[] columns;
+
+        Version(String mcVersion, String yarnVersion, int[] rows, int[] columns) {
+            this.mcVersion = mcVersion;
+            this.yarnVersion = yarnVersion;
+            this.rows = rows;
+            this.columns = columns;
+        }
+    }
+}
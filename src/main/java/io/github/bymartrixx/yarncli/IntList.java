@@ -0,0 +1,46 @@
+package io.github.bymartrixx.yarncli;
+
+import java.util.Arrays;
+
+/**
+ * A growable int array.
+ */
+class IntList {
+    private int[] values;
+    private int size;
+
+    IntList() {
+        this(4);
+    }
+
+    IntList(int capacity) {
+        this.values = new int[capacity];
+    }
+
+    void add(int value) {
+        if (this.size == this.values.length) {
+            this.values = Arrays.copyOf(this.values, Math.max(1, this.size * 2));
+        }
+
+        this.values[this.size++] = value;
+    }
+
+    /**
+     * Drops the values after the first {@code size}.
+     */
+    void truncate(int size) {
+        this.size = Math.min(this.size, size);
+    }
+
+    int get(int index) {
+        return this.values[index];
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    int[] values() {
+        return this.values;
+    }
+}
@@ -0,0 +1,67 @@
+package io.github.bymartrixx.yarncli;
+
+import com.google.gson.stream.JsonWriter;
+import io.github.bymartrixx.yarncli.object.MappedNames;
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Writes each result as a JSON object on its own line, like:
+ *
+ * <pre>{"query":"tick","type":"method","class":{"official":"...","intermediary":"...","named":"..."},"member":{...},"descriptor":"()V","accessWidener":"..."}</pre>
+ *
+ * <p>{@code member} and {@code descriptor} are omitted for class results.</p>
+ */
+public class JsonLinesResultWriter implements ResultWriter {
+    private final Writer writer;
+    private final JsonWriter jsonWriter;
+
+    public JsonLinesResultWriter(Writer writer) {
+        this.writer = writer;
+        this.jsonWriter = new JsonWriter(writer);
+        this.jsonWriter.setLenient(true); // Allows one top level value per line
+    }
+
+    @Override
+    public void write(String query, MappingsResult result) throws IOException {
+        this.jsonWriter.beginObject();
+        this.jsonWriter.name("query").value(query);
+        writeFields(this.jsonWriter, result);
+        this.jsonWriter.endObject();
+        this.writer.write('\n');
+    }
+
+    /**
+     * Writes the properties of {@code result}, from {@code type} to {@code accessWidener}, into the current object.
+     */
+    static void writeFields(JsonWriter jsonWriter, MappingsResult result) throws IOException {
+        jsonWriter.name("type").value(result.type.name().toLowerCase(Locale.ROOT));
+        writeNames(jsonWriter, "class", result.classNames);
+        if (result.memberNames != null) {
+            writeNames(jsonWriter, "member", result.memberNames);
+            jsonWriter.name("descriptor").value(result.descriptor);
+        }
+        jsonWriter.name("accessWidener").value(result.getAccessWidener());
+    }
+
+    private static void writeNames(JsonWriter jsonWriter, String name, MappedNames names) throws IOException {
+        jsonWriter.name(name).beginObject();
+        jsonWriter.name("official").value(names.official);
+        jsonWriter.name("intermediary").value(names.intermediary);
+        jsonWriter.name("named").value(names.named);
+        jsonWriter.endObject();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+}
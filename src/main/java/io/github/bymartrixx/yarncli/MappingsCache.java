@@ -0,0 +1,160 @@
+package io.github.bymartrixx.yarncli;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of loaded mappings, keyed by Minecraft version. When full, the least recently used version is
+ * evicted, unless it is the pinned version. Reads don't take locks, so lookups from several threads don't wait for
+ * each other or for a version being added.
+ */
+public class MappingsCache {
+    public static final int DEFAULT_MAX_VERSIONS = 4;
+
+    private final int maxVersions;
+    private final ConcurrentHashMap<String, Entry> versions = new ConcurrentHashMap<>();
+    /**
+     * Incremented on each access, to find the least recently used version.
+     */
+    private final AtomicLong clock = new AtomicLong();
+    /**
+     * The version that is never evicted, or {@code null}.
+     */
+    @Nullable
+    private volatile String pinned;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder uncached = new LongAdder();
+
+    public MappingsCache(int maxVersions) {
+        if (maxVersions < 1) {
+            throw new IllegalArgumentException("maxVersions must be at least 1, got " + maxVersions);
+        }
+
+        this.maxVersions = maxVersions;
+    }
+
+    /**
+     * Creates a cache sized by the {@code yarncli.cache.maxVersions} system property, or
+     * {@link #DEFAULT_MAX_VERSIONS} if unset or invalid.
+     */
+    public static MappingsCache fromSystemProperties() {
+        int maxVersions = Integer.getInteger("yarncli.cache.maxVersions", DEFAULT_MAX_VERSIONS);
+        return new MappingsCache(maxVersions < 1 ? DEFAULT_MAX_VERSIONS : maxVersions);
+    }
+
+    @Nullable
+    public VersionMappings get(String mcVersion) {
+        Entry entry = this.versions.get(mcVersion);
+        if (entry == null) {
+            this.misses.increment();
+            return null;
+        }
+
+        this.hits.increment();
+        entry.lastAccess = this.clock.incrementAndGet();
+        return entry.mappings;
+    }
+
+    /**
+     * Gets cached mappings without counting a hit or miss.
+     */
+    @Nullable
+    public VersionMappings peek(String mcVersion) {
+        Entry entry = this.versions.get(mcVersion);
+        return entry == null ? null : entry.mappings;
+    }
+
+    /**
+     * Adds or replaces the mappings of a version, evicting the least recently used versions if the cache is full. The
+     * pinned version is never evicted, so with a single version cache holding the pinned version, another version isn't
+     * added, and is counted in {@link #getUncached()}.
+     *
+     * @return whether the mappings were cached
+     */
+    public synchronized boolean put(String mcVersion, VersionMappings mappings) {
+        String pinned = this.pinned;
+        // Evict before adding, so readers never see more than maxVersions versions. Only a few versions are kept, so
+        // a scan is cheaper than keeping them ordered
+        while (!this.versions.containsKey(mcVersion) && this.versions.size() >= this.maxVersions) {
+            Map.Entry<String, Entry> eldest = null;
+            for (Map.Entry<String, Entry> entry : this.versions.entrySet()) {
+                if (!entry.getKey().equals(pinned) && (eldest == null || entry.getValue().lastAccess < eldest.getValue().lastAccess)) {
+                    eldest = entry;
+                }
+            }
+
+            if (eldest == null) {
+                this.uncached.increment();
+                return false;
+            }
+
+            this.versions.remove(eldest.getKey());
+            this.evictions.increment();
+        }
+
+        this.versions.put(mcVersion, new Entry(mappings, this.clock.incrementAndGet()));
+        return true;
+    }
+
+    /**
+     * Keeps a version from being evicted, like the selected one, replacing the previously pinned version. The version
+     * doesn't have to be cached yet.
+     *
+     * @param mcVersion the version, or {@code null} to not pin any
+     */
+    public void pin(@Nullable String mcVersion) {
+        this.pinned = mcVersion;
+    }
+
+    public boolean contains(String mcVersion) {
+        return this.versions.containsKey(mcVersion);
+    }
+
+    public void remove(String mcVersion) {
+        this.versions.remove(mcVersion);
+    }
+
+    public int size() {
+        return this.versions.size();
+    }
+
+    public int getMaxVersions() {
+        return this.maxVersions;
+    }
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    public long getEvictions() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * @return the number of versions that weren't cached because only the pinned version could have been evicted
+     */
+    public long getUncached() {
+        return this.uncached.sum();
+    }
+
+    private static class Entry {
+        final VersionMappings mappings;
+        volatile long lastAccess;
+
+        Entry(VersionMappings mappings, long lastAccess) {
+            this.mappings = mappings;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package io.github.bymartrixx.yarncli;
+
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+import org.jline.reader.Candidate;
+import org.jline.reader.Completer;
+import org.jline.reader.LineReader;
+import org.jline.reader.ParsedLine;
+
+import java.util.*;
+
+/**
+ * Completes command names, and the class, field or method names of the selected version after a query command.
+ */
+public class MappingsCompleter implements Completer {
+    /**
+     * The most names suggested at once, so huge namespaces don't stall the terminal.
+     */
+    public static final int MAX_CANDIDATES = 256;
+    private static final String[] COMMANDS = {"class", "field", "method", "search", "diff", "remap", "across", "history", "version", "prefetch", "cache", "help", "exit", "quit"};
+
+    private final MappingsManager mappingsManager;
+
+    public MappingsCompleter(MappingsManager mappingsManager) {
+        this.mappingsManager = mappingsManager;
+    }
+
+    @Override
+    public void complete(LineReader reader, ParsedLine line, List<Candidate> candidates) {
+        if (line.wordIndex() == 0) {
+            for (String command : COMMANDS) {
+                candidates.add(new Candidate(command));
+            }
+        } else if (line.wordIndex() == 1) {
+            String command = line.words().get(0).toLowerCase(Locale.ROOT);
+            String prefix = line.word().substring(0, line.wordCursor());
+
+            List<String> names;
+            MappingsResult.Type type = BatchMode.parseType(command);
+            if (type != null) {
+                names = this.mappingsManager.complete(type, prefix, MAX_CANDIDATES);
+            } else if (command.equals("search") || command.equals("s")) {
+                Set<String> allNames = new TreeSet<>();
+                for (MappingsResult.Type nameType : MappingsResult.Type.values()) {
+                    allNames.addAll(this.mappingsManager.complete(nameType, prefix, MAX_CANDIDATES));
+                }
+
+                names = new ArrayList<>(allNames);
+                names = names.subList(0, Math.min(names.size(), MAX_CANDIDATES));
+            } else {
+                return;
+            }
+
+            for (String name : names) {
+                candidates.add(new Candidate(name));
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package io.github.bymartrixx.yarncli;
+
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the mappings of two versions, joining classes, fields and methods on their intermediary names. The ids of
+ * each version are sorted by intermediary key, and the two sorted sequences are merged in a single pass, so only the
+ * id and key arrays are held in memory.
+ *
+ * <p>The key of a class is the number in its intermediary name, and the key of a member the number of its owner class
+ * followed by its own number, so ids are sorted as primitive numbers. Classes and members without intermediary numbers,
+ * like unobfuscated ones, are few and come after the others, sorted by name, then by named descriptor for members
+ * with the same name, like overloads.</p>
+ */
+public class MappingsDiff {
+    private static final int INTERMEDIARY = 1;
+    private static final int NAMED = 2;
+    /**
+     * The key of an id without intermediary numbers.
+     */
+    private static final long NO_KEY = -1;
+
+    private final VersionMappings from;
+    private final VersionMappings to;
+
+    public MappingsDiff(VersionMappings from, VersionMappings to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Reports every class, then every field, then every method that was added, removed or renamed, in intermediary
+     * order.
+     */
+    public void run(Listener listener) {
+        for (MappingsResult.Type type : MappingsResult.Type.values()) {
+            this.diff(type, listener);
+        }
+    }
+
+    private void diff(MappingsResult.Type type, Listener listener) {
+        long[] fromKeys = keys(this.from, type);
+        long[] toKeys = keys(this.to, type);
+        int[] fromIds = sortedIds(this.from, type, fromKeys);
+        int[] toIds = sortedIds(this.to, type, toKeys);
+
+        int i = 0;
+        int j = 0;
+        while (i < fromIds.length || j < toIds.length) {
+            int comparison;
+            if (i == fromIds.length) {
+                comparison = 1;
+            } else if (j == toIds.length) {
+                comparison = -1;
+            } else {
+                comparison = compare(this.from, fromIds[i], fromKeys, this.to, toIds[j], toKeys, type, false);
+            }
+
+            if (comparison < 0) {
+                listener.removed(this.from.getResult(type, fromIds[i++]));
+            } else if (comparison > 0) {
+                listener.added(this.to.getResult(type, toIds[j++]));
+            } else {
+                int fromId = fromIds[i++];
+                int toId = toIds[j++];
+                if (!this.from.getName(type, fromId, NAMED).equals(this.to.getName(type, toId, NAMED))) {
+                    listener.renamed(this.from.getResult(type, fromId), this.to.getResult(type, toId));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the intermediary key of each id, or {@link #NO_KEY}
+     */
+    private static long[] keys(VersionMappings mappings, MappingsResult.Type type) {
+        long[] keys = new long[mappings.getCount(type)];
+        int[] classNumbers = null;
+        if (type != MappingsResult.Type.CLASS) {
+            classNumbers = new int[mappings.getCount(MappingsResult.Type.CLASS)];
+            for (int id = 0; id < classNumbers.length; id++) {
+                classNumbers[id] = mappings.getIntermediaryNumber(MappingsResult.Type.CLASS, id);
+            }
+        }
+
+        for (int id = 0; id < keys.length; id++) {
+            int number = mappings.getIntermediaryNumber(type, id);
+            int classNumber = classNumbers == null ? 0 : classNumbers[mappings.getOwner(type, id)];
+            keys[id] = number == -1 || classNumber == -1 ? NO_KEY : (long) classNumber << 32 | number;
+        }
+
+        return keys;
+    }
+
+    /**
+     * Sorts the ids with a key by packing each key number with its id in a {@code long}, and the ids without one by
+     * name.
+     */
+    private static int[] sortedIds(VersionMappings mappings, MappingsResult.Type type, long[] keys) {
+        long[] packed = new long[keys.length];
+        List<Integer> unkeyed = new ArrayList<>();
+        int count = 0;
+        for (int id = 0; id < keys.length; id++) {
+            if (keys[id] == NO_KEY) {
+                unkeyed.add(id);
+            } else {
+                // By class number first, which is the whole key of a class
+                long classNumber = type == MappingsResult.Type.CLASS ? keys[id] : keys[id] >>> 32;
+                packed[count++] = classNumber << 32 | id;
+            }
+        }
+
+        Arrays.sort(packed, 0, count);
+        if (type != MappingsResult.Type.CLASS) {
+            // Then the members of each class by their own number
+            for (int start = 0, end; start < count; start = end) {
+                int classNumber = (int) (packed[start] >>> 32);
+                for (end = start; end < count && (int) (packed[end] >>> 32) == classNumber; end++) {
+                    int id = (int) packed[end];
+                    packed[end] = (keys[id] & 0xFFFFFFFFL) << 32 | id;
+                }
+
+                Arrays.sort(packed, start, end);
+            }
+        }
+
+        int[] ids = new int[keys.length];
+        for (int i = 0; i < count; i++) {
+            ids[i] = (int) packed[i];
+        }
+
+        unkeyed.sort((a, b) -> compare(mappings, a, keys, mappings, b, keys, type, true));
+        for (int i = 0; i < unkeyed.size(); i++) {
+            ids[count + i] = unkeyed.get(i);
+        }
+
+        return ids;
+    }
+
+    /**
+     * @param descriptors whether to compare the descriptors of members with the same name, which can differ between
+     * versions when a class in them is renamed
+     */
+    private static int compare(VersionMappings mappingsA, int a, long[] keysA, VersionMappings mappingsB, int b, long[] keysB,
+                               MappingsResult.Type type, boolean descriptors) {
+        if (keysA[a] != NO_KEY || keysB[b] != NO_KEY) {
+            return keysA[a] == NO_KEY ? 1 : keysB[b] == NO_KEY ? -1 : Long.compare(keysA[a], keysB[b]);
+        }
+
+        if (type == MappingsResult.Type.CLASS) {
+            return mappingsA.getName(type, a, INTERMEDIARY).compareTo(mappingsB.getName(type, b, INTERMEDIARY));
+        }
+
+        int comparison = mappingsA.getName(MappingsResult.Type.CLASS, mappingsA.getOwner(type, a), INTERMEDIARY)
+                .compareTo(mappingsB.getName(MappingsResult.Type.CLASS, mappingsB.getOwner(type, b), INTERMEDIARY));
+        if (comparison == 0) {
+            comparison = mappingsA.getName(type, a, INTERMEDIARY).compareTo(mappingsB.getName(type, b, INTERMEDIARY));
+        }
+
+        if (comparison == 0 && descriptors) {
+            comparison = mappingsA.getDescriptor(type, a).compareTo(mappingsB.getDescriptor(type, b));
+        }
+
+        return comparison;
+    }
+
+    public interface Listener {
+        void added(MappingsResult result);
+
+        void removed(MappingsResult result);
+
+        /**
+         * Called when the named name of a class or member changed. Members of renamed classes aren't reported unless
+         * their own name changed.
+         */
+        void renamed(MappingsResult from, MappingsResult to);
+    }
+}
@@ -0,0 +1,383 @@
+package io.github.bymartrixx.yarncli;
+
+import static io.github.bymartrixx.yarncli.MappingsManager.NS_INTERMEDIARY;
+import static io.github.bymartrixx.yarncli.MappingsManager.NS_NAMED;
+import static io.github.bymartrixx.yarncli.MappingsManager.NS_OFFICIAL;
+
+import net.fabricmc.mapping.tree.ClassDef;
+import net.fabricmc.mapping.tree.Descriptored;
+import net.fabricmc.mapping.tree.TinyMappingFactory;
+import net.fabricmc.mapping.tree.TinyTree;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * A compact binary form of a {@code .tiny} file, stored next to it with the {@value #EXTENSION} extension and memory
+ * mapped when loaded, so opening a version doesn't parse the text mappings and concurrent processes share the pages.
+ *
+ * <p>All values are big endian ints, except the source fields of the header. Layout:</p>
+ * <ul>
+ *     <li>Header: magic, format version, source size, source last modified time and source CRC32 (longs), string,
+ *     class, field and method counts, and the offset of each following section</li>
+ *     <li>String offsets: {@code stringCount + 1} offsets into the string data</li>
+ *     <li>Classes: {@value #CLASS_RECORD_SIZE} ints per class: official, intermediary and named name string ids,
+ *     first field id, field count, first method id, method count</li>
+ *     <li>Fields and methods: {@value #MEMBER_RECORD_SIZE} ints per member: owner class id, official, intermediary
+ *     and named name string ids, named descriptor string id. Members are sorted by owner</li>
+ *     <li>Class suffix index, see {@link SuffixIndex}</li>
+ *     <li>Field and method name indexes, see {@link NameIndex}</li>
+ *     <li>String data: the UTF-8 encoded strings</li>
+ * </ul>
+ *
+ * <p>The source fields invalidate the file when the {@code .tiny} file changes, and the format version when this
+ * layout changes.</p>
+ */
+public class MappingsFile {
+    public static final String EXTENSION = ".ymap";
+    public static final int MAGIC = 0x59434C49; // YCLI
+    public static final int FORMAT_VERSION = 1;
+
+    public static final int CLASS_RECORD_SIZE = 7;
+    public static final int MEMBER_RECORD_SIZE = 5;
+
+    static final int HEADER_SIZE = 80;
+    static final int STRING_COUNT = 32;
+    static final int CLASS_COUNT = 36;
+    static final int FIELD_COUNT = 40;
+    static final int METHOD_COUNT = 44;
+    static final int STRING_OFFSETS_START = 48;
+    static final int CLASSES_START = 52;
+    static final int FIELDS_START = 56;
+    static final int METHODS_START = 60;
+    static final int CLASS_SUFFIXES_START = 64;
+    static final int FIELD_INDEX_START = 68;
+    static final int METHOD_INDEX_START = 72;
+    static final int STRING_DATA_START = 76;
+
+    /**
+     * Opens the mappings file at {@code path}, converting {@code tinyPath} to it first if it is missing, outdated,
+     * truncated or was written by another format version.
+     */
+    public static VersionMappings open(Path path, Path tinyPath) throws IOException {
+        long size = Files.size(tinyPath);
+        long lastModified = Files.getLastModifiedTime(tinyPath).toMillis();
+
+        if (Files.isRegularFile(path) && isUpToDate(path, tinyPath, size, lastModified)) {
+            try {
+                return new VersionMappings(map(path));
+            } catch (IllegalArgumentException e) {
+                // Truncated or corrupted, convert it again
+            }
+        }
+
+        ParsedMappings parsed;
+        try (InputStream inputStream = Files.newInputStream(tinyPath)) {
+            parsed = parse(inputStream, null);
+        }
+
+        return create(parsed, tinyPath, path);
+    }
+
+    /**
+     * Parses a {@code .tiny} file from {@code inputStream}, which is read to its end but not closed.
+     *
+     * @param copyPath if not {@code null}, where a copy of the read data is written to
+     */
+    public static ParsedMappings parse(InputStream inputStream, @Nullable Path copyPath) throws IOException {
+        CRC32 checksum = new CRC32();
+        OutputStream copy = copyPath == null ? null : new BufferedOutputStream(Files.newOutputStream(copyPath));
+
+        try {
+            InputStream checkedInputStream = new CheckedInputStream(copy == null ? inputStream : new TeeInputStream(inputStream, copy), checksum);
+            // Not closed, the caller owns the stream
+            BufferedReader reader = new BufferedReader(new InputStreamReader(checkedInputStream, StandardCharsets.UTF_8));
+            TinyTree tree = TinyMappingFactory.loadWithDetection(reader);
+
+            // Read anything the parser left, so the checksum and copy cover the whole file
+            byte[] buffer = new byte[8192];
+            //noinspection StatementWithEmptyBody
+            while (checkedInputStream.read(buffer) != -1) {
+            }
+
+            return new ParsedMappings(tree, checksum.getValue());
+        } finally {
+            if (copy != null) {
+                copy.close();
+            }
+        }
+    }
+
+    /**
+     * Writes parsed mappings to the mappings file at {@code path} and opens it. If it can't be written, the mappings
+     * are kept in memory instead.
+     *
+     * @param tinyPath the {@code .tiny} file the mappings were parsed from
+     */
+    public static VersionMappings create(ParsedMappings parsed, Path tinyPath, Path path) throws IOException {
+        long size = Files.size(tinyPath);
+        long lastModified = Files.getLastModifiedTime(tinyPath).toMillis();
+
+        Path tmpPath = null;
+        try {
+            tmpPath = createTempFile(path);
+            try (OutputStream outputStream = Files.newOutputStream(tmpPath)) {
+                write(parsed.tree, size, lastModified, parsed.checksum, outputStream);
+            }
+
+            Files.move(tmpPath, path, StandardCopyOption.ATOMIC_MOVE);
+            return new VersionMappings(map(path));
+        } catch (IOException e) {
+            e.printStackTrace(); // If it can't be stored, keep the converted mappings in memory
+            if (tmpPath != null) {
+                Files.deleteIfExists(tmpPath);
+            }
+
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            write(parsed.tree, size, lastModified, parsed.checksum, outputStream);
+            return new VersionMappings(ByteBuffer.wrap(outputStream.toByteArray()));
+        }
+    }
+
+    /**
+     * Creates an empty file next to {@code path} to write it to before moving it into place with
+     * {@link StandardCopyOption#ATOMIC_MOVE}. The name is unique, so processes writing the same file at the same time
+     * don't write to the same temporary file.
+     */
+    static Path createTempFile(Path path) throws IOException {
+        return Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+    }
+
+    private static boolean isUpToDate(Path path, Path tinyPath, long size, long lastModified) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header) != -1) {
+                // Read the whole header
+            }
+        }
+
+        if (header.hasRemaining() || header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION
+                || header.getLong(8) != size) {
+            return false;
+        }
+
+        // An unchanged modification time means an unchanged file, otherwise compare the checksums
+        return header.getLong(16) == lastModified || header.getLong(24) == checksum(tinyPath);
+    }
+
+    private static long checksum(Path path) throws IOException {
+        CRC32 checksum = new CRC32();
+        try (InputStream inputStream = new CheckedInputStream(Files.newInputStream(path), checksum)) {
+            byte[] buffer = new byte[8192];
+            //noinspection StatementWithEmptyBody
+            while (inputStream.read(buffer) != -1) {
+            }
+        }
+
+        return checksum.getValue();
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Writes {@code tree} in this format.
+     *
+     * @param sourceSize the size of the {@code .tiny} file the tree was read from
+     * @param sourceLastModified the last modified time of the {@code .tiny} file, in milliseconds
+     * @param sourceChecksum the CRC32 of the {@code .tiny} file
+     */
+    public static void write(TinyTree tree, long sourceSize, long sourceLastModified, long sourceChecksum, OutputStream outputStream) throws IOException {
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+
+        Collection<ClassDef> classDefs = tree.getClasses();
+        int[] classes = new int[classDefs.size() * CLASS_RECORD_SIZE];
+        int[][] classNames = new int[3][classDefs.size()];
+        IntList fields = new IntList(1024);
+        IntList methods = new IntList(1024);
+
+        int classId = 0;
+        for (ClassDef classDef : classDefs) {
+            int official = stringId(classDef.getName(NS_OFFICIAL), stringIds, strings);
+            int intermediary = stringId(classDef.getName(NS_INTERMEDIARY), stringIds, strings);
+            int named = stringId(classDef.getName(NS_NAMED), stringIds, strings);
+            classNames[0][classId] = official;
+            classNames[1][classId] = intermediary;
+            classNames[2][classId] = named;
+
+            int record = classId * CLASS_RECORD_SIZE;
+            classes[record] = official;
+            classes[record + 1] = intermediary;
+            classes[record + 2] = named;
+            classes[record + 3] = fields.size() / MEMBER_RECORD_SIZE;
+            classes[record + 4] = addMembers(classId, classDef.getFields(), fields, stringIds, strings);
+            classes[record + 5] = methods.size() / MEMBER_RECORD_SIZE;
+            classes[record + 6] = addMembers(classId, classDef.getMethods(), methods, stringIds, strings);
+
+            classId++;
+        }
+
+        int[] classSuffixes = SuffixIndex.build(classNames, strings);
+        int[] fieldIndex = NameIndex.build(memberNames(fields), strings);
+        int[] methodIndex = NameIndex.build(memberNames(methods), strings);
+
+        int[] stringOffsets = new int[strings.size() + 1];
+        ByteArrayOutputStream stringData = new ByteArrayOutputStream();
+        for (int i = 0; i < strings.size(); i++) {
+            byte[] bytes = strings.get(i).getBytes(StandardCharsets.UTF_8);
+            stringData.write(bytes, 0, bytes.length);
+            stringOffsets[i + 1] = stringData.size();
+        }
+
+        int stringOffsetsStart = HEADER_SIZE;
+        int classesStart = stringOffsetsStart + stringOffsets.length * 4;
+        int fieldsStart = classesStart + classes.length * 4;
+        int methodsStart = fieldsStart + fields.size() * 4;
+        int classSuffixesStart = methodsStart + methods.size() * 4;
+        int fieldIndexStart = classSuffixesStart + classSuffixes.length * 4;
+        int methodIndexStart = fieldIndexStart + fieldIndex.length * 4;
+        int stringDataStart = methodIndexStart + methodIndex.length * 4;
+
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream));
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        output.writeLong(sourceSize);
+        output.writeLong(sourceLastModified);
+        output.writeLong(sourceChecksum);
+        output.writeInt(strings.size());
+        output.writeInt(classDefs.size());
+        output.writeInt(fields.size() / MEMBER_RECORD_SIZE);
+        output.writeInt(methods.size() / MEMBER_RECORD_SIZE);
+        output.writeInt(stringOffsetsStart);
+        output.writeInt(classesStart);
+        output.writeInt(fieldsStart);
+        output.writeInt(methodsStart);
+        output.writeInt(classSuffixesStart);
+        output.writeInt(fieldIndexStart);
+        output.writeInt(methodIndexStart);
+        output.writeInt(stringDataStart);
+
+        writeInts(output, stringOffsets, stringOffsets.length);
+        writeInts(output, classes, classes.length);
+        writeInts(output, fields.values(), fields.size());
+        writeInts(output, methods.values(), methods.size());
+        writeInts(output, classSuffixes, classSuffixes.length);
+        writeInts(output, fieldIndex, fieldIndex.length);
+        writeInts(output, methodIndex, methodIndex.length);
+        stringData.writeTo(output);
+        output.flush();
+    }
+
+    private static int addMembers(int owner, Collection<? extends Descriptored> members, IntList records, Map<String, Integer> stringIds, List<String> strings) {
+        for (Descriptored member : members) {
+            records.add(owner);
+            records.add(stringId(member.getName(NS_OFFICIAL), stringIds, strings));
+            records.add(stringId(member.getName(NS_INTERMEDIARY), stringIds, strings));
+            records.add(stringId(member.getName(NS_NAMED), stringIds, strings));
+            records.add(stringId(member.getDescriptor(NS_NAMED), stringIds, strings));
+        }
+
+        return members.size();
+    }
+
+    private static int[][] memberNames(IntList records) {
+        int count = records.size() / MEMBER_RECORD_SIZE;
+        int[][] names = new int[3][count];
+        for (int id = 0; id < count; id++) {
+            for (int namespace = 0; namespace < 3; namespace++) {
+                names[namespace][id] = records.get(id * MEMBER_RECORD_SIZE + 1 + namespace);
+            }
+        }
+
+        return names;
+    }
+
+    private static int stringId(String string, Map<String, Integer> stringIds, List<String> strings) {
+        Integer id = stringIds.get(string);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(string, id);
+            strings.add(string);
+        }
+
+        return id;
+    }
+
+    private static void writeInts(DataOutputStream output, int[] values, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            output.writeInt(values[i]);
+        }
+    }
+
+    /**
+     * A parsed {@code .tiny} file, with the CRC32 of its contents.
+     */
+    public static class ParsedMappings {
+        public final TinyTree tree;
+        public final long checksum;
+
+        public ParsedMappings(TinyTree tree, long checksum) {
+            this.tree = tree;
+            this.checksum = checksum;
+        }
+    }
+
+    /**
+     * Copies everything read from a stream to an output stream.
+     */
+    private static class TeeInputStream extends FilterInputStream {
+        private final OutputStream copy;
+
+        TeeInputStream(InputStream inputStream, OutputStream copy) {
+            super(inputStream);
+            this.copy = copy;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                this.copy.write(b);
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                this.copy.write(b, off, read);
+            }
+
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes must be copied too
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            int read = this.read(buffer, 0, buffer.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
@@ -1,95 +1,150 @@
 package io.github.bymartrixx.yarncli;
 
 import com.google.gson.Gson;
-import io.github.bymartrixx.yarncli.object.LauncherMetaResponse;
+import io.github.bymartrixx.yarncli.object.HistoryEntry;
+import io.github.bymartrixx.yarncli.object.MappingsQuery;
 import io.github.bymartrixx.yarncli.object.MappingsResult;
-import io.github.bymartrixx.yarncli.object.MetaYarnVersion;
 import io.github.bymartrixx.yarncli.object.MinecraftLatest;
-import net.fabricmc.mapping.tree.*;
-import org.apache.hc.client5.http.classic.methods.HttpGet;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
+import io.github.bymartrixx.yarncli.object.MinecraftVersion;
+import io.github.bymartrixx.yarncli.object.SearchResult;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/**
+ * Loads and queries the mappings of Minecraft versions. It can be used from several threads at once: loaded
+ * {@link VersionMappings} are immutable, lookups don't take locks, and a version requested by several threads while it
+ * is being loaded is only loaded once.
+ */
 public class MappingsManager {
-    private static final String YARN_URL = "https://meta.fabricmc.net/v2/versions/yarn/{VERSION}?limit=1";
     private static final String MAVEN_URL = "https://maven.fabricmc.net/net/fabricmc/yarn/{VERSION}/yarn-{VERSION}-mergedv2.jar";
-    private static final String LAUNCHERMETA_URL = "https://launchermeta.mojang.com/mc/game/version_manifest.json";
     public static final String NS_OFFICIAL = "official";
     public static final String NS_INTERMEDIARY = "intermediary";
     public static final String NS_NAMED = "named";
     public static final String VERSION_REGEX = "[A-z0-9.]+";
 
-    private final Gson gson;
-
-    private final Map<String, @Nullable TinyTree> versionCache = new HashMap<>();
-    public final Map<String, String> versionNames = new HashMap<>();
-    public final Map<String, String> yarnVersions = new HashMap<>();
-    private String selectedVersion;
+    private final Downloader downloader;
+    private final VersionResolver versionResolver;
+    private final MappingsCache versionCache;
+    @Nullable
+    private final HistoryIndex historyIndex;
+    /**
+     * Where downloaded and converted mappings are stored.
+     */
+    private final Path mappingsPath;
+    /**
+     * The mappings being loaded, by Minecraft version.
+     */
+    private final Map<String, CompletableFuture<VersionMappings>> pendingMappings = new ConcurrentHashMap<>();
+    private final ExecutorService loadExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "Mappings loader");
+        thread.setDaemon(true); // Don't keep the program running on exit
+        return thread;
+    });
+    public final Map<String, String> versionNames = new ConcurrentHashMap<>();
+    public final Map<String, String> yarnVersions = new ConcurrentHashMap<>();
+    private final AtomicReference<String> selectedVersion = new AtomicReference<>();
 
     public MappingsManager() {
-        this.gson = new Gson();
+        this(new Downloader());
+    }
+
+    private MappingsManager(Downloader downloader) {
+        this(downloader, VersionResolver.createDefault(new Gson(), downloader.getClient()), MappingsCache.fromSystemProperties(),
+                new HistoryIndex(YarnCli.appPath.resolve(HistoryIndex.FILE_NAME)));
     }
 
-    private boolean exactMatches(Mapped mapped, String query) {
-        return mapped.getName(NS_INTERMEDIARY).equals(query)
-                || mapped.getName(NS_NAMED).equals(query)
-                || mapped.getName(NS_OFFICIAL).equals(query);
+    public MappingsManager(Downloader downloader, VersionResolver versionResolver, MappingsCache versionCache) {
+        this(downloader, versionResolver, versionCache, null);
     }
 
-    private boolean matches(Mapped mapped, String query) {
-        return mapped.getName(NS_INTERMEDIARY).endsWith(query)
-                || mapped.getName(NS_NAMED).endsWith(query)
-                || mapped.getName(NS_OFFICIAL).endsWith(query);
+    /**
+     * @param historyIndex where the names of each loaded version are indexed, or {@code null} to not index them
+     */
+    public MappingsManager(Downloader downloader, VersionResolver versionResolver, MappingsCache versionCache, @Nullable HistoryIndex historyIndex) {
+        this(downloader, versionResolver, versionCache, historyIndex, YarnCli.appPath);
+    }
+
+    /**
+     * @param mappingsPath the directory where downloaded and converted mappings are stored
+     */
+    public MappingsManager(Downloader downloader, VersionResolver versionResolver, MappingsCache versionCache, @Nullable HistoryIndex historyIndex,
+                           Path mappingsPath) {
+        this.downloader = downloader;
+        this.versionResolver = versionResolver;
+        this.versionCache = versionCache;
+        this.historyIndex = historyIndex;
+        this.mappingsPath = mappingsPath;
     }
 
     public @Nullable List<MappingsResult> getClassMappings(String query) {
-        return this.getClassMappings(this.selectedVersion, query);
+        return this.getClassMappings(this.selectedVersion.get(), query);
     }
 
     public @Nullable List<MappingsResult> getClassMappings(String mcVersion, String query) {
-        TinyTree mappings = openMappings(mcVersion);
+        VersionMappings mappings = openMappings(mcVersion);
         if (mappings == null) {
             return null;
         }
 
-        String rewrittenQuery = preProcessClassQuery(query);
-
-        return mappings.getClasses().stream().filter(classDef -> matches(classDef, rewrittenQuery)).map(classDef -> new MappingsResult(classDef, null)).collect(Collectors.toList());
+        return this.getMappings(mappings, MappingsResult.Type.CLASS, query);
     }
 
     private String preProcessClassQuery(String query) {
-        if (query.matches("[\\d]+")) {
+        if (isNumber(query)) {
             return "class_" + query;
         }
 
         return query;
     }
 
+    /**
+     * @return whether {@code query} is only digits, as an intermediary id, checked without a regex since it runs for
+     * every query
+     */
+    private static boolean isNumber(String query) {
+        if (query.isEmpty()) {
+            return false;
+        }
+
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     public @Nullable List<MappingsResult> getMethodMappings(String query) {
-        return this.getMethodMappings(this.selectedVersion, query);
+        return this.getMethodMappings(this.selectedVersion.get(), query);
     }
 
     public @Nullable List<MappingsResult> getMethodMappings(String mcVersion, String query) {
-        TinyTree mappings = openMappings(mcVersion);
+        VersionMappings mappings = openMappings(mcVersion);
         if (mappings == null) {
             return null;
         }
 
-        return getMappingsResults(mappings, preProcessMethodQuery(query), ClassDef::getMethods);
+        return this.getMappings(mappings, MappingsResult.Type.METHOD, query);
     }
 
     private String preProcessMethodQuery(String query) {
-        if (query.matches("[\\d]+")) {
+        if (isNumber(query)) {
             return "method_" + query;
         }
 
@@ -97,139 +152,437 @@ public class MappingsManager {
     }
 
     public @Nullable List<MappingsResult> getFieldMappings(String query) {
-        return this.getFieldMappings(this.selectedVersion, query);
+        return this.getFieldMappings(this.selectedVersion.get(), query);
     }
 
     public @Nullable List<MappingsResult> getFieldMappings(String mcVersion, String query) {
-        TinyTree mappings = openMappings(mcVersion);
+        VersionMappings mappings = openMappings(mcVersion);
         if (mappings == null) {
             return null;
         }
 
-        return getMappingsResults(mappings, preProcessFieldQuery(query), ClassDef::getFields);
+        return this.getMappings(mappings, MappingsResult.Type.FIELD, query);
     }
 
     private String preProcessFieldQuery(String query) {
-        if (query.matches("[\\d]+")) {
+        if (isNumber(query)) {
             return "field_" + query;
         }
 
         return query;
     }
 
-    private List<MappingsResult> getMappingsResults(TinyTree tree, String query, DescriptoredProvider body) {
-        List<MappingsResult> result = new ArrayList<>();
+    public @Nullable List<SearchResult> search(String query, int limit) {
+        return this.search(this.selectedVersion.get(), query, limit);
+    }
 
-        Collection<ClassDef> classes = tree.getClasses();
-        for (ClassDef classDef : classes) {
-            Collection<? extends Descriptored> descriptors = body.provide(classDef);
-            for (Descriptored descriptor : descriptors) {
-                if (this.exactMatches(descriptor, query)) {
-                    result.add(new MappingsResult(classDef, descriptor));
-                }
-            }
+    /**
+     * Finds the classes, fields and methods with names similar to {@code query}, so typos and partial names still
+     * find something.
+     *
+     * @return up to {@code limit} results, most similar first, or {@code null} if there are no mappings for the
+     * version
+     */
+    public @Nullable List<SearchResult> search(String mcVersion, String query, int limit) {
+        VersionMappings mappings = openMappings(mcVersion);
+        if (mappings == null) {
+            return null;
         }
 
-        return result;
+        return mappings.search(query, limit);
     }
 
-    public void cacheMappings(String release, String snapshot) {
-        String releaseYarnVersion = this.getLatestYarnVersion(release);
-        String snapshotYarnVersion = this.getLatestYarnVersion(snapshot);
+    /**
+     * Completes a class, field or method name in the selected version. Never waits for mappings to load or for the
+     * completion indexes to be built, so it can run as the user types.
+     *
+     * @return up to {@code limit} names starting with {@code prefix}, in ascending order, or none if the mappings of
+     * the version aren't loaded or the indexes aren't built yet, in which case they start being built
+     */
+    public List<String> complete(MappingsResult.Type type, String prefix, int limit) {
+        String mcVersion = this.selectedVersion.get();
+        VersionMappings mappings = mcVersion == null ? null : this.versionCache.peek(mcVersion);
+        if (mappings == null) {
+            return Collections.emptyList();
+        }
 
-        if (yarnVersions.get(release) != null
-                && yarnVersions.get(release).equals(releaseYarnVersion)
-                && yarnVersions.get(snapshot) != null
-                && yarnVersions.get(snapshot).equals(snapshotYarnVersion)) {
-            return;
+        List<String> names = mappings.complete(type, prefix, limit);
+        if (names == null) {
+            mappings.prepareCompletion(this.loadExecutor);
+            return Collections.emptyList();
         }
 
-        if (versionNames.isEmpty()) {
-            this.selectedVersion = release;
-            versionNames.put("release", release);
-            versionNames.put("snapshot", snapshot);
+        return names;
+    }
+
+    /**
+     * Builds the completion indexes of the selected version in the background, so the first completion doesn't wait
+     * for them. They hold every name of the version, so only the prompt, which completes names, builds them.
+     */
+    public void prepareCompletion() {
+        String mcVersion = this.selectedVersion.get();
+        VersionMappings mappings = mcVersion == null ? null : this.versionCache.peek(mcVersion);
+        if (mappings != null) {
+            mappings.prepareCompletion(this.loadExecutor);
+        }
+    }
+
+    /**
+     * Reports the classes, fields and methods added, removed or renamed between two versions.
+     *
+     * @return {@code false} if there are no mappings for one of the versions
+     */
+    public boolean diff(String fromVersion, String toVersion, MappingsDiff.Listener listener) {
+        VersionMappings from = openMappings(fromVersion);
+        VersionMappings to = from == null ? null : openMappings(toVersion);
+        if (to == null) {
+            return false;
+        }
+
+        new MappingsDiff(from, to).run(listener);
+        return true;
+    }
+
+    /**
+     * Runs {@code queries} against {@code mcVersion}, spread over the common fork-join pool.
+     *
+     * @return the results of each query, in the same order as {@code queries}, or {@code null} if there are no
+     * mappings for the version
+     */
+    public @Nullable List<List<MappingsResult>> getMappings(String mcVersion, List<MappingsQuery> queries) {
+        VersionMappings mappings = openMappings(mcVersion);
+        if (mappings == null) {
+            return null;
+        }
+
+        return queries.parallelStream().map(query -> this.getMappings(mappings, query.type, query.query)).collect(Collectors.toList());
+    }
+
+    /**
+     * Runs a single query of any type, which can also be a glob or regular expression.
+     *
+     * @return the results, or {@code null} if there are no mappings for the version
+     * @throws IllegalArgumentException if {@code query} is an invalid glob or regular expression
+     */
+    public @Nullable List<MappingsResult> getMappings(String mcVersion, MappingsResult.Type type, String query) {
+        if (NamePattern.isPattern(query)) {
+            NamePattern.compile(query); // Fail before loading the mappings
+        }
+
+        VersionMappings mappings = openMappings(mcVersion);
+        if (mappings == null) {
+            return null;
+        }
+
+        return this.getMappings(mappings, type, query);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code query} is an invalid glob or regular expression
+     */
+    private List<MappingsResult> getMappings(VersionMappings mappings, MappingsResult.Type type, String query) {
+        if (NamePattern.isPattern(query)) {
+            return mappings.getMatches(type, NamePattern.compile(query));
+        }
+
+        switch (type) {
+            case CLASS:
+                return mappings.getClasses(preProcessClassQuery(query));
+            case FIELD:
+                return mappings.getFields(preProcessFieldQuery(query));
+            default:
+                return mappings.getMethods(preProcessMethodQuery(query));
         }
+    }
 
-        if (!versionCache.containsKey(release)) {
-            if (releaseYarnVersion != null) {
-                TinyTree releaseVersion = openMappings(release);
+    /**
+     * Runs a query against several versions at once. Versions that aren't cached are loaded in parallel, up to
+     * {@link Downloader#MAX_CONNECTIONS_PER_HOST} at a time, and each is queried as soon as it is loaded. The selected
+     * version is pinned in the cache, so loading the others doesn't evict it.
+     *
+     * @return the results by version, in the order of {@code mcVersions}, with {@code null} for the versions without
+     * mappings
+     * @throws IllegalArgumentException if {@code query} is an invalid glob or regular expression
+     */
+    public Map<String, List<MappingsResult>> getMappings(Collection<String> mcVersions, MappingsResult.Type type, String query) {
+        if (NamePattern.isPattern(query)) {
+            NamePattern.compile(query); // Fail before loading the mappings
+        }
 
-                if (releaseVersion != null) {
-                    versionCache.remove(versionNames.get("release"));
-                    versionCache.put(release, releaseVersion);
+        Set<String> versions = new LinkedHashSet<>(mcVersions);
+        if (versions.isEmpty()) {
+            return Collections.emptyMap();
+        }
 
-                    this.selectedVersion = release;
-                    versionNames.put("release", release);
-                    releaseVersion = null;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(versions.size(), Downloader.MAX_CONNECTIONS_PER_HOST));
+        try {
+            Map<String, CompletableFuture<List<MappingsResult>>> futures = new LinkedHashMap<>();
+            for (String mcVersion : versions) {
+                futures.put(mcVersion, CompletableFuture.supplyAsync(() -> {
+                    VersionMappings mappings = this.openMappings(mcVersion);
+                    return mappings == null ? null : new ArrayList<>(this.getMappings(mappings, type, query));
+                }, executor));
+            }
 
-                    yarnVersions.put(release, releaseYarnVersion);
+            Map<String, List<MappingsResult>> results = new LinkedHashMap<>();
+            for (Map.Entry<String, CompletableFuture<List<MappingsResult>>> future : futures.entrySet()) {
+                try {
+                    results.put(future.getKey(), future.getValue().join());
+                } catch (CompletionException e) {
+                    e.getCause().printStackTrace();
+                    results.put(future.getKey(), null);
                 }
             }
+
+            return results;
+        } finally {
+            executor.shutdown();
         }
+    }
 
-        if (!versionCache.containsKey(snapshot)) {
-            if (snapshotYarnVersion != null) {
-                TinyTree snaphotVersion = openMappings(snapshot);
+    /**
+     * Runs a glob or regular expression query, handing each result to {@code consumer} as it is found instead of
+     * collecting them.
+     *
+     * @return the number of results, or {@code -1} if there are no mappings for the version
+     * @throws IllegalArgumentException if {@code pattern} is invalid
+     * @see NamePattern
+     */
+    public int forEachMatch(String mcVersion, MappingsResult.Type type, String pattern, Consumer<MappingsResult> consumer) {
+        NamePattern namePattern = NamePattern.compile(pattern);
+        VersionMappings mappings = openMappings(mcVersion);
+        if (mappings == null) {
+            return -1;
+        }
 
-                if (snaphotVersion != null) {
-                    versionCache.remove(versionNames.get("snapshot"));
-                    versionCache.put(snapshot, snaphotVersion);
+        int[] count = {0};
+        mappings.match(type, namePattern, id -> {
+            consumer.accept(mappings.getResult(type, id));
+            count[0]++;
+        });
 
-                    versionNames.put("snapshot", snapshot);
-                    snaphotVersion = null;
+        return count[0];
+    }
 
-                    yarnVersions.put(snapshot, snapshotYarnVersion);
+    /**
+     * Copies {@code reader} to {@code writer}, remapping the intermediary names in it to {@code namespace}.
+     *
+     * @return the number of names remapped, or {@code -1} if there are no mappings for the version
+     * @throws IllegalArgumentException if the namespace isn't {@link #NS_NAMED} or {@link #NS_OFFICIAL}
+     * @see Remapper
+     */
+    public long remap(String mcVersion, Reader reader, Writer writer, String namespace) throws IOException {
+        VersionMappings mappings = openMappings(mcVersion);
+        if (mappings == null) {
+            return -1;
+        }
+
+        return new Remapper(mappings, namespace).remap(reader, writer);
+    }
+
+    public void cacheMappings(String release, String snapshot) {
+        this.cacheMappingsAsync(release, snapshot).join();
+    }
+
+    /**
+     * Selects {@code release} if no version is selected yet and starts loading the release and snapshot mappings in
+     * the background. Queries against either version wait for its mappings to be loaded.
+     *
+     * @return a future completed once both versions have been loaded, or failed to load
+     */
+    public CompletableFuture<Void> cacheMappingsAsync(String release, String snapshot) {
+        if (versionNames.putIfAbsent("release", release) == null && this.selectedVersion.compareAndSet(null, release)) {
+            this.versionCache.pin(release);
+        }
+        versionNames.putIfAbsent("snapshot", snapshot);
+
+        return CompletableFuture.allOf(this.cacheVersionAsync("release", release), this.cacheVersionAsync("snapshot", snapshot));
+    }
+
+    private CompletableFuture<Void> cacheVersionAsync(String name, String mcVersion) {
+        return this.openMappingsAsync(mcVersion).handle((mappings, e) -> {
+            if (e != null) {
+                e.printStackTrace();
+                return null;
+            }
+
+            if (mappings != null) {
+                String oldVersion = versionNames.put(name, mcVersion);
+                if (oldVersion != null && !mcVersion.equals(oldVersion)) {
+                    versionCache.remove(oldVersion);
                 }
             }
+
+            return null;
+        });
+    }
+
+    /**
+     * @return a future completed with the mappings of {@code mcVersion}, or {@code null} if there are none. If the
+     * mappings are being loaded already, that load's future is returned
+     */
+    public CompletableFuture<VersionMappings> openMappingsAsync(String mcVersion) {
+        VersionMappings cached = this.versionCache.get(mcVersion);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
         }
+
+        CompletableFuture<VersionMappings> future = new CompletableFuture<>();
+        CompletableFuture<VersionMappings> pending = this.pendingMappings.putIfAbsent(mcVersion, future);
+        if (pending != null) {
+            return pending;
+        }
+
+        this.loadExecutor.execute(() -> this.completeMappings(mcVersion, future, () -> {}, () -> {}, true));
+        return future;
     }
 
     @Nullable
-    private TinyTree openMappings(String mcVersion) {
+    private VersionMappings openMappings(String mcVersion) {
         return this.openMappings(mcVersion, () -> {}, () -> {});
     }
 
+    /**
+     * Gets the mappings of {@code mcVersion}, loading them on this thread, or waiting for them if they are being
+     * loaded already.
+     */
+    @Nullable
+    private VersionMappings openMappings(String mcVersion, Callback startDownloadCallback, Callback finishDownloadCallback) {
+        VersionMappings cached = this.versionCache.get(mcVersion);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<VersionMappings> future = new CompletableFuture<>();
+        CompletableFuture<VersionMappings> pending = this.pendingMappings.putIfAbsent(mcVersion, future);
+        if (pending != null) {
+            return pending.join();
+        }
+
+        this.completeMappings(mcVersion, future, startDownloadCallback, finishDownloadCallback, true);
+        return future.join();
+    }
+
+    /**
+     * Loads the mappings of {@code mcVersion} on this thread without caching them, or waits for them if they are being
+     * loaded already, so a version is never downloaded or converted twice at once.
+     */
+    @Nullable
+    private VersionMappings loadUncached(String mcVersion) {
+        CompletableFuture<VersionMappings> future = new CompletableFuture<>();
+        CompletableFuture<VersionMappings> pending = this.pendingMappings.putIfAbsent(mcVersion, future);
+        if (pending != null) {
+            return pending.join();
+        }
+
+        this.completeMappings(mcVersion, future, () -> {}, () -> {}, false);
+        return future.join();
+    }
+
+    /**
+     * @param cache whether to add the loaded mappings to the cache
+     */
+    private void completeMappings(String mcVersion, CompletableFuture<VersionMappings> future, Callback startDownloadCallback, Callback finishDownloadCallback,
+                                  boolean cache) {
+        VersionMappings mappings;
+        try {
+            mappings = this.loadVersion(mcVersion, startDownloadCallback, finishDownloadCallback, cache);
+        } catch (RuntimeException e) {
+            this.pendingMappings.remove(mcVersion, future);
+            future.completeExceptionally(e);
+            return;
+        }
+
+        // Removed once the mappings are cached, so no one starts loading them again
+        this.pendingMappings.remove(mcVersion, future);
+        future.complete(mappings);
+    }
+
     @Nullable
-    private TinyTree openMappings(String mcVersion, Callback startDownloadCallback, Callback finishDownloadCallback) {
+    private VersionMappings loadVersion(String mcVersion, Callback startDownloadCallback, Callback finishDownloadCallback, boolean cache) {
+        // Another load may have cached it since the caller missed, which was counted already
+        VersionMappings cached = this.versionCache.peek(mcVersion);
+        if (cached != null) {
+            return cached;
+        }
+
         String latestYarnVersion = this.getLatestYarnVersion(mcVersion);
         if (latestYarnVersion == null) {
             return null;
         }
 
-        if (this.versionCache.containsKey(mcVersion)) {
-            return versionCache.get(mcVersion);
+        VersionMappings mappings = this.loadMappings(latestYarnVersion, startDownloadCallback, finishDownloadCallback);
+        if (mappings != null) {
+            if (cache) {
+                this.versionCache.put(mcVersion, mappings);
+            }
+            yarnVersions.put(mcVersion, latestYarnVersion);
+            this.indexHistory(mcVersion, latestYarnVersion, mappings);
         }
 
-        Path appTinyPath = Paths.get(YarnCli.appPath.toString(), latestYarnVersion + ".tiny");
-        Path appJarPath = Paths.get(YarnCli.appPath.toString(), latestYarnVersion + ".jar");
+        return mappings;
+    }
+
+    @Nullable
+    private VersionMappings loadMappings(String latestYarnVersion, Callback startDownloadCallback, Callback finishDownloadCallback) {
+        Path appTinyPath = this.mappingsPath.resolve(latestYarnVersion + ".tiny");
+        Path appJarPath = this.mappingsPath.resolve(latestYarnVersion + ".jar");
+        Path appMappingsPath = this.mappingsPath.resolve(latestYarnVersion + MappingsFile.EXTENSION);
         File loomTinyFile = new File(YarnCli.loomPath.toFile(), String.format("yarn-%s-v2.tiny", latestYarnVersion));
 
         if (!appTinyPath.toFile().exists()) {
             if (loomTinyFile.exists()) {
                 try {
-                    BufferedReader bufferedReader = Files.newBufferedReader(loomTinyFile.toPath(), StandardCharsets.UTF_8);
-                    return TinyMappingFactory.loadWithDetection(bufferedReader);
+                    return MappingsFile.open(appMappingsPath, loomTinyFile.toPath());
                 } catch (IOException e) {
                     e.printStackTrace(); // If it fails, try to use the app folder tiny file
                 }
             }
 
-            try {
-                startDownloadCallback.callback();
-                CloseableHttpClient client = HttpClients.createDefault();
+            String url = MAVEN_URL.replace("{VERSION}", latestYarnVersion);
+            Path appJarPartPath = appJarPath.resolveSibling(appJarPath.getFileName() + ".part");
+            startDownloadCallback.callback();
 
-                HttpGet request = new HttpGet(MAVEN_URL.replace("{VERSION}", latestYarnVersion));
-                CloseableHttpResponse response = client.execute(request);
+            if (!Files.exists(appJarPartPath)) {
+                // Parse the tiny file as it is downloaded, keeping a copy for later loads
+                Path tinyTmpPath = null;
+                MappingsFile.ParsedMappings parsed = null;
+                try {
+                    tinyTmpPath = MappingsFile.createTempFile(appTinyPath);
+                    Path copyPath = tinyTmpPath;
+                    parsed = this.downloader.downloadEntry(url, "mappings/mappings.tiny",
+                            inputStream -> MappingsFile.parse(inputStream, copyPath));
+                    Files.move(tinyTmpPath, appTinyPath, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    e.printStackTrace(); // If it fails, download the jar instead
+                    parsed = null;
+                    deleteIfExists(tinyTmpPath);
+                }
 
-                Files.copy(response.getEntity().getContent(), appJarPath, StandardCopyOption.REPLACE_EXISTING);
+                if (parsed != null) {
+                    finishDownloadCallback.callback();
 
-                FileSystem fileSystem = FileSystems.newFileSystem(appJarPath, null);
-                Files.copy(fileSystem.getPath("mappings/mappings.tiny"), appTinyPath, StandardCopyOption.REPLACE_EXISTING);
+                    try {
+                        return MappingsFile.create(parsed, appTinyPath, appMappingsPath);
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                        return null;
+                    }
+                }
+            }
+
+            try {
+                this.downloader.download(url, appJarPath);
+
+                Path tinyTmpPath = MappingsFile.createTempFile(appTinyPath);
+                try (FileSystem fileSystem = FileSystems.newFileSystem(appJarPath, null)) {
+                    Files.copy(fileSystem.getPath("mappings/mappings.tiny"), tinyTmpPath, StandardCopyOption.REPLACE_EXISTING);
+                    Files.move(tinyTmpPath, appTinyPath, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    deleteIfExists(tinyTmpPath); // Only there if it wasn't moved
+                }
 
                 finishDownloadCallback.callback();
-                fileSystem.close();
-                response.close();
-                client.close();
             } catch (IOException e) {
                 e.printStackTrace();
                 finishDownloadCallback.callback(); // If not called, a progress bar would spin indefinitely
@@ -238,53 +591,131 @@ public class MappingsManager {
         }
 
         try {
-            BufferedReader bufferedReader = Files.newBufferedReader(appTinyPath, StandardCharsets.UTF_8);
-            return TinyMappingFactory.loadWithDetection(bufferedReader);
+            return MappingsFile.open(appMappingsPath, appTinyPath);
         } catch (IOException e) {
             e.printStackTrace();
             return null;
         }
     }
 
-    @Nullable
-    private String getLatestYarnVersion(String mcVersion) {
-        String encodedVersion = null;
+    private static void deleteIfExists(@Nullable Path path) {
+        if (path != null) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Downloads and converts the mappings of several versions in parallel, so later loads only have to open them.
+     * The versions are not loaded into the cache. A version that is being loaded already is waited for instead of
+     * being loaded again.
+     *
+     * @return the versions whose mappings couldn't be found or downloaded
+     */
+    public List<String> prefetch(Collection<String> mcVersions) {
+        Set<String> versions = new LinkedHashSet<>(mcVersions);
+        if (versions.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(versions.size(), Downloader.MAX_CONNECTIONS_PER_HOST));
         try {
-            //noinspection CharsetObjectCanBeUsed // encode(String, Charset) not in java 8
-            encodedVersion = URLEncoder.encode(mcVersion, "utf-8");
-        } catch (UnsupportedEncodingException e) {
-            return null; // Should not happen
+            Map<String, Future<Boolean>> results = new LinkedHashMap<>();
+            for (String mcVersion : versions) {
+                results.put(mcVersion, executor.submit(() -> this.loadUncached(mcVersion) != null));
+            }
+
+            List<String> failed = new ArrayList<>();
+            for (Map.Entry<String, Future<Boolean>> result : results.entrySet()) {
+                try {
+                    if (!result.getValue().get()) {
+                        failed.add(result.getKey());
+                    }
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    failed.add(result.getKey());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failed.add(result.getKey());
+                }
+            }
+
+            return failed;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Adds a version to the history index in the background.
+     */
+    private void indexHistory(String mcVersion, String yarnVersion, VersionMappings mappings) {
+        if (this.historyIndex == null) {
+            return;
         }
-        String url = YARN_URL.replace("{VERSION}", encodedVersion);
 
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            HttpGet request = new HttpGet(url);
-            InputStreamReader responseReader = new InputStreamReader(client.execute(request).getEntity().getContent());
+        this.loadExecutor.execute(() -> {
+            try {
+                this.historyIndex.add(mcVersion, yarnVersion, mappings);
+            } catch (IOException e) {
+                e.printStackTrace(); // It is indexed again the next time the version is loaded
+            }
+        });
+    }
+
+    /**
+     * Gets the names of a class, field or method in every version in the history index, which has every version
+     * loaded so far.
+     *
+     * @param number the number in the intermediary name, like {@code 1234} for {@code method_1234}
+     * @return the names in each version, from oldest to newest, or {@code null} if there is no history index
+     */
+    public @Nullable List<HistoryEntry> getHistory(MappingsResult.Type type, int number) throws IOException {
+        if (this.historyIndex == null) {
+            return null;
+        }
+
+        List<HistoryEntry> entries = this.historyIndex.get(type, number);
+        try {
+            // Sort by release order, the index is in the order versions were loaded
+            Map<String, Integer> order = new HashMap<>();
+            List<MinecraftVersion> versions = this.versionResolver.getMinecraftVersions();
+            for (int i = 0; i < versions.size(); i++) {
+                order.put(versions.get(i).id, versions.size() - i);
+            }
+
+            entries.sort(Comparator.comparingInt(entry -> order.getOrDefault(entry.mcVersion, Integer.MAX_VALUE)));
+        } catch (IOException e) {
+            e.printStackTrace(); // Keep the index order
+        }
 
-            MetaYarnVersion metaYarnVersion = this.gson.fromJson(responseReader, MetaYarnVersion[].class)[0];
-            responseReader.close();
-            client.close();
+        return entries;
+    }
 
-            return metaYarnVersion.version;
+    @Nullable
+    private String getLatestYarnVersion(String mcVersion) {
+        try {
+            return this.versionResolver.getLatestYarnVersion(mcVersion);
         } catch (IOException e) {
             e.printStackTrace();
             return null;
-        } catch (ArrayIndexOutOfBoundsException ignored) {
-            return null;
         }
     }
 
     public MinecraftLatest getLatestMinecraftVersions() throws IOException {
-        CloseableHttpClient client = HttpClients.createDefault();
-
-        HttpGet request = new HttpGet(LAUNCHERMETA_URL);
-        InputStreamReader responseReader = new InputStreamReader(client.execute(request).getEntity().getContent());
-
-        LauncherMetaResponse response = this.gson.fromJson(responseReader, LauncherMetaResponse.class);
-        responseReader.close();
-        client.close();
+        return this.versionResolver.getLatestMinecraftVersions();
+    }
 
-        return response.latest;
+    public CompletableFuture<MinecraftLatest> getLatestMinecraftVersionsAsync() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return this.getLatestMinecraftVersions();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, this.loadExecutor);
     }
 
     public void selectVersion(@NotNull String version) {
@@ -296,20 +727,7 @@ public class MappingsManager {
         }
 
         // Get the minecraft version
-        String mcVersion;
-        switch (version.toLowerCase()) {
-            case "":
-                mcVersion = YarnCli.latest.release;
-                break;
-            case "release":
-                mcVersion = versionNames.getOrDefault(version.toLowerCase(), YarnCli.latest.release);
-                break;
-            case "snapshot":
-                mcVersion = versionNames.getOrDefault(version.toLowerCase(), YarnCli.latest.snapshot);
-                break;
-            default:
-                mcVersion = version;
-        }
+        String mcVersion = this.resolveVersion(version);
 
         if (mcVersion.equals(this.getSelectedVersion())) {
             OutputUtil.yellow();
@@ -322,7 +740,7 @@ public class MappingsManager {
         YarnCli.SpinningProgressBar downloadProgressBar = new YarnCli.SpinningProgressBar(String.format("Downloading Yarn mappings for %s... ", mcVersion), "[ done ]\n", 50, YarnCli.SPINNING_PROGRESS_BAR_FRAMES);
 
         // Check if there are Yarn mappings for the version, if there are they will be downloaded if required
-        TinyTree dummy = this.openMappings(mcVersion, downloadProgressBar::startSpinning, downloadProgressBar::stopSpinning);
+        VersionMappings dummy = this.openMappings(mcVersion, downloadProgressBar::startSpinning, downloadProgressBar::stopSpinning);
         if (dummy == null) {
             OutputUtil.red();
             OutputUtil.printf("Unable to find Yarn mappings for Minecraft %s%n", mcVersion);
@@ -330,19 +748,100 @@ public class MappingsManager {
             return;
         }
 
-        this.selectedVersion = mcVersion;
+        this.selectedVersion.set(mcVersion);
+        this.versionCache.pin(mcVersion); // Queries against other versions don't evict it
         OutputUtil.lightBlue();
         OutputUtil.printf("Changed to Minecraft %s%n", mcVersion);
         OutputUtil.reset();
     }
 
+    /**
+     * @return the Minecraft version for {@code version}, which can be {@code release} or {@code snapshot} for the
+     * latest ones, or empty for the latest release
+     */
+    public String resolveVersion(String version) {
+        switch (version.toLowerCase()) {
+            case "":
+                return YarnCli.latest.release;
+            case "release":
+                return versionNames.getOrDefault(version.toLowerCase(), YarnCli.latest.release);
+            case "snapshot":
+                return versionNames.getOrDefault(version.toLowerCase(), YarnCli.latest.snapshot);
+            default:
+                return version;
+        }
+    }
+
+    /**
+     * Resolves a comma separated list of versions, where each one is a version, {@code release}, {@code snapshot} or a
+     * range like {@code 1.16..1.16.5}. A range has the versions released from its first to its last version, both
+     * included, and only has releases if both ends are releases.
+     *
+     * @return the versions without duplicates, with ranges from oldest to newest
+     * @throws IllegalArgumentException if a range has an unknown version
+     * @throws IOException if there is a range and the version manifest can't be fetched
+     */
+    public List<String> resolveVersions(String versions) throws IOException {
+        Set<String> resolved = new LinkedHashSet<>();
+        List<MinecraftVersion> manifest = null;
+        for (String version : versions.split(",")) {
+            version = version.trim();
+            int separator = version.indexOf("..");
+            if (separator == -1) {
+                if (!version.isEmpty()) {
+                    resolved.add(this.resolveVersion(version));
+                }
+
+                continue;
+            }
+
+            if (manifest == null) {
+                manifest = this.versionResolver.getMinecraftVersions();
+            }
+
+            int first = indexOf(manifest, this.resolveVersion(version.substring(0, separator)));
+            int last = indexOf(manifest, this.resolveVersion(version.substring(separator + 2)));
+            if (first < last) { // The manifest is newest first, so the oldest version has the higher index
+                int swap = first;
+                first = last;
+                last = swap;
+            }
+
+            boolean releasesOnly = manifest.get(first).type.equals("release") && manifest.get(last).type.equals("release");
+            for (int i = first; i >= last; i--) {
+                if (!releasesOnly || manifest.get(i).type.equals("release")) {
+                    resolved.add(manifest.get(i).id);
+                }
+            }
+        }
+
+        return new ArrayList<>(resolved);
+    }
+
+    private static int indexOf(List<MinecraftVersion> manifest, String mcVersion) {
+        for (int i = 0; i < manifest.size(); i++) {
+            if (manifest.get(i).id.equals(mcVersion)) {
+                return i;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown Minecraft version: " + mcVersion);
+    }
+
+    /**
+     * @return the Yarn version loaded for {@code mcVersion}, or {@code null} if it wasn't loaded yet
+     */
+    @Nullable
+    public String getYarnVersion(String mcVersion) {
+        return yarnVersions.get(mcVersion);
+    }
+
     public String getSelectedVersion() {
-        return this.selectedVersion;
+        return this.selectedVersion.get();
     }
 
-    @FunctionalInterface
-    private interface DescriptoredProvider {
-        Collection<? extends Descriptored> provide(ClassDef classDef);
+    public MappingsCache getVersionCache() {
+        return this.versionCache;
     }
 
     @FunctionalInterface
@@ -0,0 +1,113 @@
+package io.github.bymartrixx.yarncli;
+
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * A hash table from names to the ids with that name, stored in a {@link MappingsFile}.
+ *
+ * <p>Layout, in ints: the table size {@code n} (a power of two), {@code n + 1} bucket start offsets into the postings,
+ * and the postings. A bucket holds, for each name hashing to it, the name string id, the number of ids and the ids,
+ * in ascending order.</p>
+ */
+public class NameIndex {
+    private static final int[] NO_IDS = new int[0];
+
+    private final IntBuffer index;
+    private final StringTable strings;
+    private final int mask;
+    private final int postingsStart;
+
+    public NameIndex(IntBuffer index, StringTable strings) {
+        this.index = index;
+        this.strings = strings;
+
+        int tableSize = index.get(0);
+        this.mask = tableSize - 1;
+        this.postingsStart = tableSize + 2;
+    }
+
+    /**
+     * Builds an index.
+     *
+     * @param nameIds the string ids of the names to index, one array per namespace, each indexed by id
+     * @param strings the string pool the ids refer to
+     */
+    public static int[] build(int[][] nameIds, List<String> strings) {
+        // Name string id -> ids, in ascending id order
+        Map<Integer, List<Integer>> postings = new LinkedHashMap<>();
+        int count = nameIds.length == 0 ? 0 : nameIds[0].length;
+        for (int id = 0; id < count; id++) {
+            for (int namespace = 0; namespace < nameIds.length; namespace++) {
+                List<Integer> ids = postings.computeIfAbsent(nameIds[namespace][id], k -> new ArrayList<>(1));
+                if (ids.isEmpty() || ids.get(ids.size() - 1) != id) { // Several names of an id may be equal
+                    ids.add(id);
+                }
+            }
+        }
+
+        int tableSize = Integer.highestOneBit(Math.max(1, postings.size()) * 2 - 1);
+        List<List<Integer>> buckets = new ArrayList<>(tableSize);
+        for (int i = 0; i < tableSize; i++) {
+            buckets.add(new ArrayList<>());
+        }
+
+        int postingsSize = 0;
+        for (Map.Entry<Integer, List<Integer>> entry : postings.entrySet()) {
+            buckets.get(hash(strings.get(entry.getKey())) & (tableSize - 1)).add(entry.getKey());
+            postingsSize += 2 + entry.getValue().size();
+        }
+
+        int[] result = new int[1 + tableSize + 1 + postingsSize];
+        result[0] = tableSize;
+        int offset = 0;
+        int position = tableSize + 2;
+        for (int bucket = 0; bucket < tableSize; bucket++) {
+            result[1 + bucket] = offset;
+            for (int nameId : buckets.get(bucket)) {
+                List<Integer> ids = postings.get(nameId);
+                result[position++] = nameId;
+                result[position++] = ids.size();
+                for (int id : ids) {
+                    result[position++] = id;
+                }
+
+                offset += 2 + ids.size();
+            }
+        }
+        result[1 + tableSize] = offset;
+
+        return result;
+    }
+
+    /**
+     * @return the ids with a name equal to {@code name}, in ascending order
+     */
+    public int[] find(String name) {
+        int bucket = hash(name) & this.mask;
+        int position = this.postingsStart + this.index.get(1 + bucket);
+        int end = this.postingsStart + this.index.get(2 + bucket);
+
+        while (position < end) {
+            int nameId = this.index.get(position);
+            int count = this.index.get(position + 1);
+            if (this.strings.get(nameId).equals(name)) {
+                int[] ids = new int[count];
+                for (int i = 0; i < count; i++) {
+                    ids[i] = this.index.get(position + 2 + i);
+                }
+
+                return ids;
+            }
+
+            position += 2 + count;
+        }
+
+        return NO_IDS;
+    }
+
+    private static int hash(String name) {
+        int hash = name.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,512 @@
+package io.github.bymartrixx.yarncli;
+
+import java.util.*;
+
+/**
+ * A glob or regular expression query, matched against whole names. A query between slashes, like {@code /get.*Pos/},
+ * is a regular expression, and a query with {@code *}, {@code ?} or {@code [} is a glob, where {@code *} and
+ * {@code ?} don't match {@code /} and {@code **} matches anything.
+ *
+ * <p>Regular expressions support literals, {@code .}, character classes, the {@code \d}, {@code \w} and {@code \s}
+ * escapes, groups, alternation and the {@code *}, {@code +} and {@code ?} quantifiers. The pattern is compiled to
+ * an NFA, which is turned into a DFA one state at a time as names are matched, so each character of a name is
+ * matched with a table lookup once the DFA is warm. Instances aren't thread safe.</p>
+ */
+public class NamePattern {
+    private final boolean slash;
+    private final String literalPrefix;
+    private final List<Node> nodes;
+    private final Map<BitSet, DfaState> dfaStates = new HashMap<>();
+    private final DfaState start;
+
+    private NamePattern(boolean slash, String literalPrefix, List<Node> nodes, Node start) {
+        this.slash = slash;
+        this.literalPrefix = literalPrefix;
+        this.nodes = nodes;
+
+        BitSet startStates = new BitSet();
+        addClosure(startStates, start);
+        this.start = this.dfaState(startStates);
+    }
+
+    /**
+     * @return whether {@code query} is a glob or regular expression rather than a plain name
+     */
+    public static boolean isPattern(String query) {
+        return isRegex(query) || query.indexOf('*') != -1 || query.indexOf('?') != -1 || query.indexOf('[') != -1;
+    }
+
+    private static boolean isRegex(String query) {
+        return query.length() >= 2 && query.startsWith("/") && query.endsWith("/");
+    }
+
+    /**
+     * @throws IllegalArgumentException if the pattern is invalid
+     */
+    public static NamePattern compile(String query) {
+        boolean regex = isRegex(query);
+        String pattern = regex ? query.substring(1, query.length() - 1) : query;
+        String source = regex ? pattern : globToRegex(query);
+        Parser parser = new Parser(source);
+        Fragment fragment = parser.parse();
+        fragment.end.match = true;
+
+        return new NamePattern(pattern.indexOf('/') != -1, literalPrefix(source), parser.nodes, fragment.start);
+    }
+
+    /**
+     * @return the text every matching name starts with, possibly empty
+     */
+    public String getLiteralPrefix() {
+        return this.literalPrefix;
+    }
+
+    /**
+     * @return whether the pattern mentions {@code /}, so it is meant for full class names rather than names without
+     * the package
+     */
+    public boolean hasSlash() {
+        return this.slash;
+    }
+
+    public boolean matches(String name) {
+        DfaState state = this.start;
+        for (int i = 0; i < name.length(); i++) {
+            state = this.step(state, name.charAt(i));
+            if (state.dead) {
+                return false;
+            }
+        }
+
+        return state.accepting;
+    }
+
+    private DfaState step(DfaState state, char c) {
+        DfaState next = c < 128 ? state.ascii[c] : state.other == null ? null : state.other.get(c);
+        if (next != null) {
+            return next;
+        }
+
+        BitSet states = new BitSet();
+        for (int id = state.states.nextSetBit(0); id >= 0; id = state.states.nextSetBit(id + 1)) {
+            Node node = this.nodes.get(id);
+            if (node.chars != null && node.chars.matches(c)) {
+                addClosure(states, node.out);
+            }
+        }
+
+        next = this.dfaState(states);
+        if (c < 128) {
+            state.ascii[c] = next;
+        } else {
+            if (state.other == null) {
+                state.other = new HashMap<>();
+            }
+
+            state.other.put(c, next);
+        }
+
+        return next;
+    }
+
+    private DfaState dfaState(BitSet states) {
+        DfaState state = this.dfaStates.get(states);
+        if (state == null) {
+            boolean accepting = false;
+            for (int id = states.nextSetBit(0); id >= 0; id = states.nextSetBit(id + 1)) {
+                accepting |= this.nodes.get(id).match;
+            }
+
+            state = new DfaState(states, accepting);
+            this.dfaStates.put(states, state);
+        }
+
+        return state;
+    }
+
+    /**
+     * Adds {@code node} and the nodes reachable from it without reading a character.
+     */
+    private static void addClosure(BitSet states, Node node) {
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            Node current = stack.pop();
+            if (states.get(current.id)) {
+                continue;
+            }
+
+            states.set(current.id);
+            if (current.chars == null) {
+                if (current.out != null) {
+                    stack.push(current.out);
+                }
+
+                if (current.out2 != null) {
+                    stack.push(current.out2);
+                }
+            }
+        }
+    }
+
+    private static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder(glob.length() + 8);
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*':
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                        regex.append(".*");
+                        i++;
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                case '[':
+                    int end = glob.indexOf(']', i + 2);
+                    if (end == -1) {
+                        throw new IllegalArgumentException("Unclosed [ in " + glob);
+                    }
+
+                    String chars = glob.substring(i + 1, end);
+                    regex.append('[').append(chars.startsWith("!") ? "^" + chars.substring(1) : chars).append(']');
+                    i = end;
+                    break;
+                default:
+                    if (Parser.isSpecial(c)) {
+                        regex.append('\\');
+                    }
+
+                    regex.append(c);
+            }
+        }
+
+        return regex.toString();
+    }
+
+    /**
+     * Finds the plain characters at the start of a regular expression, stopping early where it can't tell.
+     */
+    private static String literalPrefix(String regex) {
+        if (regex.indexOf('|') != -1) {
+            return ""; // Any branch could be the first
+        }
+
+        StringBuilder prefix = new StringBuilder();
+        int i = regex.startsWith("^") ? 1 : 0;
+        for (; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            char literal;
+            if (c == '\\' && i + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                literal = regex.charAt(++i);
+            } else if (Parser.isSpecial(c)) {
+                break;
+            } else {
+                literal = c;
+            }
+
+            if (i + 1 < regex.length() && "*+?{".indexOf(regex.charAt(i + 1)) != -1) {
+                break; // The character is optional or repeated
+            }
+
+            prefix.append(literal);
+        }
+
+        return prefix.toString();
+    }
+
+    private static class Node {
+        final int id;
+        /**
+         * The characters this node reads, or {@code null} if it doesn't read one.
+         */
+        final CharSet chars;
+        Node out;
+        Node out2;
+        boolean match;
+
+        Node(int id, CharSet chars) {
+            this.id = id;
+            this.chars = chars;
+        }
+    }
+
+    /**
+     * A part of the NFA, from {@code start} to {@code end}, which doesn't lead anywhere yet.
+     */
+    private static class Fragment {
+        final Node start;
+        final Node end;
+
+        Fragment(Node start, Node end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static class DfaState {
+        final BitSet states;
+        final boolean accepting;
+        final boolean dead;
+        final DfaState[] ascii = new DfaState[128];
+        Map<Character, DfaState> other;
+
+        DfaState(BitSet states, boolean accepting) {
+            this.states = states;
+            this.accepting = accepting;
+            this.dead = states.isEmpty();
+        }
+    }
+
+    private static class CharSet {
+        /**
+         * Inclusive ranges, as pairs of first and last character.
+         */
+        private final char[] ranges;
+        private final boolean negated;
+
+        CharSet(char[] ranges, boolean negated) {
+            this.ranges = ranges;
+            this.negated = negated;
+        }
+
+        static CharSet of(char c) {
+            return new CharSet(new char[]{c, c}, false);
+        }
+
+        boolean matches(char c) {
+            for (int i = 0; i < this.ranges.length; i += 2) {
+                if (c >= this.ranges[i] && c <= this.ranges[i + 1]) {
+                    return !this.negated;
+                }
+            }
+
+            return this.negated;
+        }
+    }
+
+    /**
+     * Builds the NFA of a regular expression with Thompson's construction.
+     */
+    private static class Parser {
+        private static final char[] DIGITS = {'0', '9'};
+        private static final char[] WORD = {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+        private static final char[] SPACE = {'\t', '\r', ' ', ' '};
+
+        final List<Node> nodes = new ArrayList<>();
+        private final String regex;
+        private int position;
+
+        Parser(String regex) {
+            this.regex = regex;
+        }
+
+        static boolean isSpecial(char c) {
+            return "\\.[]()|*+?{}^$".indexOf(c) != -1;
+        }
+
+        Fragment parse() {
+            if (this.regex.startsWith("^")) {
+                this.position++; // Names are always matched whole
+            }
+
+            Fragment fragment = this.alternation();
+            if (this.position < this.regex.length()) {
+                throw this.error("Unexpected " + this.regex.charAt(this.position));
+            }
+
+            return fragment;
+        }
+
+        private Fragment alternation() {
+            Fragment fragment = this.concatenation();
+            while (this.peek() == '|') {
+                this.position++;
+                Fragment other = this.concatenation();
+
+                Node start = this.node(null);
+                Node end = this.node(null);
+                start.out = fragment.start;
+                start.out2 = other.start;
+                fragment.end.out = end;
+                other.end.out = end;
+                fragment = new Fragment(start, end);
+            }
+
+            return fragment;
+        }
+
+        private Fragment concatenation() {
+            Node empty = this.node(null);
+            Fragment fragment = new Fragment(empty, empty);
+            while (this.position < this.regex.length() && this.peek() != '|' && this.peek() != ')') {
+                if (this.peek() == '$' && this.position == this.regex.length() - 1) {
+                    this.position++; // Names are always matched whole
+                    break;
+                }
+
+                Fragment next = this.repetition();
+                fragment.end.out = next.start;
+                fragment = new Fragment(fragment.start, next.end);
+            }
+
+            return fragment;
+        }
+
+        private Fragment repetition() {
+            Fragment fragment = this.atom();
+            while (this.position < this.regex.length()) {
+                char c = this.peek();
+                if (c != '*' && c != '+' && c != '?') {
+                    if (c == '{') {
+                        throw this.error("{n,m} repetition is not supported");
+                    }
+
+                    break;
+                }
+                this.position++;
+
+                Node end = this.node(null);
+                if (c == '+') {
+                    Node loop = this.node(null);
+                    loop.out = fragment.start;
+                    loop.out2 = end;
+                    fragment.end.out = loop;
+                    fragment = new Fragment(fragment.start, end);
+                } else {
+                    Node start = this.node(null);
+                    start.out = fragment.start;
+                    start.out2 = end;
+                    fragment.end.out = c == '*' ? start : end;
+                    fragment = new Fragment(start, end);
+                }
+            }
+
+            return fragment;
+        }
+
+        private Fragment atom() {
+            char c = this.regex.charAt(this.position++);
+            switch (c) {
+                case '(':
+                    if (this.regex.startsWith("?:", this.position)) {
+                        this.position += 2;
+                    }
+
+                    Fragment group = this.alternation();
+                    if (this.peek() != ')') {
+                        throw this.error("Unclosed (");
+                    }
+
+                    this.position++;
+                    return group;
+                case '[':
+                    return this.chars(this.charClass());
+                case '.':
+                    return this.chars(new CharSet(new char[0], true));
+                case '\\':
+                    return this.chars(this.escape());
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                case ')':
+                case '^':
+                case '$':
+                    throw this.error("Unexpected " + c);
+                default:
+                    return this.chars(CharSet.of(c));
+            }
+        }
+
+        private CharSet escape() {
+            if (this.position >= this.regex.length()) {
+                throw this.error("Trailing \\");
+            }
+
+            char c = this.regex.charAt(this.position++);
+            switch (c) {
+                case 'd':
+                case 'D':
+                    return new CharSet(DIGITS, c == 'D');
+                case 'w':
+                case 'W':
+                    return new CharSet(WORD, c == 'W');
+                case 's':
+                case 'S':
+                    return new CharSet(SPACE, c == 'S');
+                default:
+                    if (Character.isLetterOrDigit(c)) {
+                        throw this.error("Unsupported escape \\" + c);
+                    }
+
+                    return CharSet.of(c);
+            }
+        }
+
+        private CharSet charClass() {
+            boolean negated = this.peek() == '^';
+            if (negated) {
+                this.position++;
+            }
+
+            StringBuilder ranges = new StringBuilder();
+            boolean first = true;
+            while (this.position < this.regex.length() && (this.peek() != ']' || first)) {
+                first = false;
+                char c = this.regex.charAt(this.position++);
+                if (c == '\\') {
+                    CharSet escaped = this.escape();
+                    if (escaped.negated) {
+                        throw this.error("Negated escapes are not supported in character classes");
+                    }
+
+                    ranges.append(escaped.ranges);
+                    continue;
+                }
+
+                char last = c;
+                if (this.peek() == '-' && this.position + 1 < this.regex.length() && this.regex.charAt(this.position + 1) != ']') {
+                    last = this.regex.charAt(this.position + 1);
+                    this.position += 2;
+                    if (last < c) {
+                        throw this.error("Invalid range " + c + "-" + last);
+                    }
+                }
+
+                ranges.append(c).append(last);
+            }
+
+            if (this.position >= this.regex.length()) {
+                throw this.error("Unclosed [");
+            }
+
+            this.position++;
+            return new CharSet(ranges.toString().toCharArray(), negated);
+        }
+
+        private Fragment chars(CharSet chars) {
+            Node node = this.node(chars);
+            Node end = this.node(null);
+            node.out = end;
+            return new Fragment(node, end);
+        }
+
+        private Node node(CharSet chars) {
+            Node node = new Node(this.nodes.size(), chars);
+            this.nodes.add(node);
+            return node;
+        }
+
+        private char peek() {
+            return this.position < this.regex.length() ? this.regex.charAt(this.position) : '\0';
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(String.format("%s at %d in /%s/", message, this.position, this.regex));
+        }
+    }
+}
@@ -1,39 +1,107 @@
 package io.github.bymartrixx.yarncli;
 
+import java.io.PrintStream;
+import java.util.Formatter;
+
+/**
+ * Terminal output helpers. Output is collected in a buffer and written to {@link System#out} on {@link #flush()}, or
+ * once the buffer grows past {@link #MAX_BUFFERED} characters, so a command prints with a few writes instead of one
+ * per call. Escape codes are left out when stdout isn't a terminal, which can be overridden with the
+ * {@code yarncli.ansi} system property.
+ */
 public class OutputUtil {
+    public static final int MAX_BUFFERED = 1 << 16;
+
+    private static final StringBuilder buffer = new StringBuilder(MAX_BUFFERED);
+    private static final Formatter formatter = new Formatter(buffer);
+    private static volatile PrintStream out = System.out;
+    private static volatile boolean ansi = Boolean.parseBoolean(System.getProperty("yarncli.ansi", String.valueOf(System.console() != null)));
+
     public static void println(String x) {
-        System.out.println(x);
+        print(x + System.lineSeparator());
     }
 
     public static void println(int x) {
-        System.out.println(x);
+        println(String.valueOf(x));
     }
 
     public static void println(Object x) {
-        System.out.println(x);
+        println(String.valueOf(x));
     }
 
     public static void printf(String format, Object ... args) {
-        System.out.printf(format, args);
+        synchronized (buffer) {
+            formatter.format(format, args);
+            flushIfFull();
+        }
     }
 
     public static void print(String x) {
-        System.out.print(x);
+        synchronized (buffer) {
+            buffer.append(x);
+            flushIfFull();
+        }
     }
 
     public static void print(int x) {
-        System.out.print(x);
+        print(String.valueOf(x));
     }
 
     public static void print(Object x) {
-        System.out.print(x);
+        print(String.valueOf(x));
+    }
+
+    /**
+     * Writes the buffered output to {@link System#out}, or the stream set with {@link #setOut(PrintStream)}.
+     */
+    public static void flush() {
+        synchronized (buffer) {
+            if (buffer.length() > 0) {
+                out.append(buffer);
+                buffer.setLength(0);
+            }
+
+            out.flush();
+        }
+    }
+
+    private static void flushIfFull() {
+        if (buffer.length() >= MAX_BUFFERED) {
+            flush();
+        }
+    }
+
+    /**
+     * Sets where the output is written, {@link System#out} by default.
+     */
+    public static void setOut(PrintStream out) {
+        synchronized (buffer) {
+            OutputUtil.out = out;
+        }
+    }
+
+    public static boolean isAnsi() {
+        return ansi;
+    }
+
+    /**
+     * Sets whether escape codes are printed.
+     */
+    public static void setAnsi(boolean ansi) {
+        OutputUtil.ansi = ansi;
     }
 
     /**
      * <a href="https://en.wikipedia.org/wiki/ANSI_escape_code#CSI_(Control_Sequence_Introducer)_sequences">Control Sequence Introducer</a>
      */
     private static void CSI(String code) {
-        print("\033[" + code);
+        if (!ansi) {
+            return;
+        }
+
+        synchronized (buffer) {
+            buffer.append("\033[").append(code);
+        }
     }
 
     public static void showCursor() {
@@ -0,0 +1,121 @@
+package io.github.bymartrixx.yarncli;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Finds the names starting with a prefix, by keeping the distinct names sorted so the names with a prefix form a
+ * contiguous range found with a binary search.
+ *
+ * <p>Names can be added with keys, ints chosen by the caller, which are returned for the matching names.</p>
+ */
+public class PrefixIndex {
+    private final String[] names;
+    /**
+     * For each name, where its keys start in {@link #keys}, plus the end, or {@code null} if there are no keys.
+     */
+    @Nullable
+    private final int[] keyStarts;
+    @Nullable
+    private final int[] keys;
+
+    public PrefixIndex(Collection<String> names) {
+        String[] sorted = names.toArray(new String[0]);
+        Arrays.sort(sorted);
+
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || !sorted[i].equals(sorted[i - 1])) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+
+        this.names = Arrays.copyOf(sorted, distinct);
+        this.keyStarts = null;
+        this.keys = null;
+    }
+
+    /**
+     * @param keys the key of each name, by its index in {@code names}. The keys of a name are kept in this order
+     */
+    public PrefixIndex(List<String> names, int[] keys) {
+        Integer[] order = new Integer[names.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(names::get)); // Stable, so equal names keep the order of their keys
+
+        String[] distinctNames = new String[order.length];
+        int[] keyStarts = new int[order.length + 1];
+        int[] sortedKeys = new int[order.length];
+        int distinct = 0;
+        for (int i = 0; i < order.length; i++) {
+            String name = names.get(order[i]);
+            if (distinct == 0 || !name.equals(distinctNames[distinct - 1])) {
+                keyStarts[distinct] = i;
+                distinctNames[distinct++] = name;
+            }
+
+            sortedKeys[i] = keys[order[i]];
+        }
+        keyStarts[distinct] = order.length;
+
+        this.names = Arrays.copyOf(distinctNames, distinct);
+        this.keyStarts = Arrays.copyOf(keyStarts, distinct + 1);
+        this.keys = sortedKeys;
+    }
+
+    /**
+     * @return up to {@code limit} names starting with {@code prefix}, in ascending order
+     */
+    public List<String> find(String prefix, int limit) {
+        List<String> result = new ArrayList<>(Math.min(limit, 16));
+        for (int i = this.lowerBound(prefix); i < this.names.length && result.size() < limit && this.names[i].startsWith(prefix); i++) {
+            result.add(this.names[i]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Hands every name starting with {@code prefix} to {@code consumer}, in ascending order.
+     */
+    public void forEach(String prefix, Consumer<String> consumer) {
+        for (int i = this.lowerBound(prefix); i < this.names.length && this.names[i].startsWith(prefix); i++) {
+            consumer.accept(this.names[i]);
+        }
+    }
+
+    /**
+     * Hands the keys of every name starting with {@code prefix} and accepted by {@code filter} to {@code consumer}.
+     * A key is handed once for each of its names that matches.
+     *
+     * @throws IllegalStateException if the index was created without keys
+     */
+    public void forEachKey(String prefix, Predicate<String> filter, IntConsumer consumer) {
+        if (this.keys == null || this.keyStarts == null) {
+            throw new IllegalStateException("The index has no keys");
+        }
+
+        for (int i = this.lowerBound(prefix); i < this.names.length && this.names[i].startsWith(prefix); i++) {
+            if (filter.test(this.names[i])) {
+                for (int key = this.keyStarts[i]; key < this.keyStarts[i + 1]; key++) {
+                    consumer.accept(this.keys[key]);
+                }
+            }
+        }
+    }
+
+    private int lowerBound(String prefix) {
+        int index = Arrays.binarySearch(this.names, prefix);
+        return index < 0 ? -index - 1 : index;
+    }
+
+    public int size() {
+        return this.names.length;
+    }
+}
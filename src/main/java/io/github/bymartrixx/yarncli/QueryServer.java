@@ -0,0 +1,324 @@
+package io.github.bymartrixx.yarncli;
+
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+import io.github.bymartrixx.yarncli.object.SearchResult;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves lookups over HTTP on the loopback interface, so one process with the mappings loaded can answer the queries
+ * of every tool on the machine. Every response is JSON:
+ *
+ * <ul>
+ *     <li>{@code GET /class?q=<query>}, {@code /field} and {@code /method} run a query, which can also be a glob or
+ *     regular expression, and return {@code {"version":"...","yarn":"...","results":[...]}}, where each result has the
+ *     same properties as in the {@code jsonl} batch format</li>
+ *     <li>{@code GET /search?q=<query>[&limit=<n>]} runs a fuzzy search, adding the matching {@code name} and
+ *     {@code score} to each result</li>
+ *     <li>{@code GET /version[?version=<version>]} loads a version, returning its Minecraft and Yarn versions</li>
+ *     <li>{@code GET /versions} returns the latest release and snapshot and the loaded versions</li>
+ * </ul>
+ *
+ * <p>Every endpoint takes an optional {@code version} parameter, which defaults to the latest release. Errors are
+ * returned as {@code {"error":"..."}} with a 4xx or 5xx status.</p>
+ */
+public class QueryServer {
+    public static final int DEFAULT_PORT = 8785;
+    public static final int MAX_SEARCH_LIMIT = 100;
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
+    private static final int RESPONSE_BUFFER_SIZE = 4096;
+
+    private final MappingsManager mappingsManager;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * @param threads how many requests are handled at the same time
+     */
+    public QueryServer(MappingsManager mappingsManager, int port, int threads) throws IOException {
+        this.mappingsManager = mappingsManager;
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            // Without it small responses wait for the client's delayed ack, which limits each connection to ~25 requests per second
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Query server " + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(this.executor);
+
+        this.server.createContext("/class", this.handler(this::query));
+        this.server.createContext("/field", this.handler(this::query));
+        this.server.createContext("/method", this.handler(this::query));
+        this.server.createContext("/search", this.handler(this::search));
+        this.server.createContext("/version", this.handler(this::version));
+        this.server.createContext("/versions", this.handler(this::versions));
+    }
+
+    /**
+     * Creates a server with the {@code yarncli.server.threads} system property as the number of threads, or twice the
+     * number of processors if unset or invalid.
+     */
+    public static QueryServer fromSystemProperties(MappingsManager mappingsManager, int port) throws IOException {
+        int threads = Integer.getInteger("yarncli.server.threads", 0);
+        return new QueryServer(mappingsManager, port, threads < 1 ? Runtime.getRuntime().availableProcessors() * 2 : threads);
+    }
+
+    public void start() {
+        this.server.start();
+    }
+
+    /**
+     * Stops accepting requests, waiting up to {@code delay} seconds for the current ones to finish.
+     */
+    public void stop(int delay) {
+        this.server.stop(delay);
+        this.executor.shutdown();
+    }
+
+    public InetSocketAddress getAddress() {
+        return this.server.getAddress();
+    }
+
+    private void query(HttpExchange exchange, Map<String, String> params) throws IOException {
+        MappingsResult.Type type = BatchMode.parseType(exchange.getHttpContext().getPath().substring(1));
+        String query = params.get("q");
+        if (query == null || query.isEmpty()) {
+            sendError(exchange, 400, "Missing query parameter \"q\"");
+            return;
+        }
+
+        String mcVersion = this.getVersion(exchange, params);
+        if (mcVersion == null) {
+            return;
+        }
+
+        List<MappingsResult> results;
+        try {
+            results = this.mappingsManager.getMappings(mcVersion, type, query);
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, "Invalid pattern: " + e.getMessage());
+            return;
+        }
+
+        if (results == null) {
+            sendError(exchange, 404, "Unable to find Yarn mappings for " + mcVersion);
+            return;
+        }
+
+        this.respond(exchange, 200, jsonWriter -> {
+            this.beginResults(jsonWriter, mcVersion);
+            for (MappingsResult result : results) {
+                jsonWriter.beginObject();
+                JsonLinesResultWriter.writeFields(jsonWriter, result);
+                jsonWriter.endObject();
+            }
+            jsonWriter.endArray().endObject();
+        });
+    }
+
+    private void search(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String query = params.get("q");
+        if (query == null || query.isEmpty()) {
+            sendError(exchange, 400, "Missing query parameter \"q\"");
+            return;
+        }
+
+        int limit = DEFAULT_SEARCH_LIMIT;
+        if (params.containsKey("limit")) {
+            try {
+                limit = Integer.parseInt(params.get("limit"));
+            } catch (NumberFormatException e) {
+                limit = -1;
+            }
+
+            if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+                sendError(exchange, 400, "The limit must be a number from 1 to " + MAX_SEARCH_LIMIT);
+                return;
+            }
+        }
+
+        String mcVersion = this.getVersion(exchange, params);
+        if (mcVersion == null) {
+            return;
+        }
+
+        List<SearchResult> results = this.mappingsManager.search(mcVersion, query, limit);
+        if (results == null) {
+            sendError(exchange, 404, "Unable to find Yarn mappings for " + mcVersion);
+            return;
+        }
+
+        this.respond(exchange, 200, jsonWriter -> {
+            this.beginResults(jsonWriter, mcVersion);
+            for (SearchResult result : results) {
+                jsonWriter.beginObject();
+                jsonWriter.name("name").value(result.name);
+                jsonWriter.name("score").value(result.score);
+                JsonLinesResultWriter.writeFields(jsonWriter, result.result);
+                jsonWriter.endObject();
+            }
+            jsonWriter.endArray().endObject();
+        });
+    }
+
+    private void version(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String mcVersion = this.getVersion(exchange, params);
+        if (mcVersion == null) {
+            return;
+        }
+
+        if (this.mappingsManager.openMappingsAsync(mcVersion).join() == null) {
+            sendError(exchange, 404, "Unable to find Yarn mappings for " + mcVersion);
+            return;
+        }
+
+        this.respond(exchange, 200, jsonWriter -> {
+            jsonWriter.beginObject();
+            jsonWriter.name("version").value(mcVersion);
+            jsonWriter.name("yarn").value(this.mappingsManager.getYarnVersion(mcVersion));
+            jsonWriter.endObject();
+        });
+    }
+
+    private void versions(HttpExchange exchange, Map<String, String> params) throws IOException {
+        this.respond(exchange, 200, jsonWriter -> {
+            jsonWriter.beginObject();
+            jsonWriter.name("release").value(YarnCli.latest.release);
+            jsonWriter.name("snapshot").value(YarnCli.latest.snapshot);
+            jsonWriter.name("loaded").beginObject();
+            for (Map.Entry<String, String> entry : this.mappingsManager.yarnVersions.entrySet()) {
+                if (this.mappingsManager.getVersionCache().contains(entry.getKey())) {
+                    jsonWriter.name(entry.getKey()).value(entry.getValue());
+                }
+            }
+            jsonWriter.endObject();
+            jsonWriter.endObject();
+        });
+    }
+
+    /**
+     * @return the Minecraft version of the {@code version} parameter, or {@code null} if it is invalid, in which case
+     * an error was sent
+     */
+    @Nullable
+    private String getVersion(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String version = params.getOrDefault("version", "release");
+        if (!version.matches(MappingsManager.VERSION_REGEX)) {
+            sendError(exchange, 400, String.format("Invalid minecraft version specified: \"%s\"", version));
+            return null;
+        }
+
+        return this.mappingsManager.resolveVersion(version);
+    }
+
+    private void beginResults(JsonWriter jsonWriter, String mcVersion) throws IOException {
+        jsonWriter.beginObject();
+        jsonWriter.name("version").value(mcVersion);
+        jsonWriter.name("yarn").value(this.mappingsManager.getYarnVersion(mcVersion));
+        jsonWriter.name("results").beginArray();
+    }
+
+    /**
+     * Sends a JSON response written by {@code body}. The response is buffered, so it is sent with its length and a
+     * failure while writing it can still be sent as an error.
+     */
+    private void respond(HttpExchange exchange, int status, JsonBody body) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(RESPONSE_BUFFER_SIZE);
+        try (JsonWriter jsonWriter = new JsonWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
+            body.write(jsonWriter);
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, outputStream.size());
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            outputStream.writeTo(responseBody);
+        }
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        this.respond(exchange, status, jsonWriter -> {
+            jsonWriter.beginObject();
+            jsonWriter.name("error").value(message);
+            jsonWriter.endObject();
+        });
+    }
+
+    private HttpHandler handler(Handler handler) {
+        return exchange -> {
+            try {
+                if (!exchange.getRequestMethod().equals("GET")) {
+                    exchange.getResponseHeaders().set("Allow", "GET");
+                    this.sendError(exchange, 405, "Only GET requests are supported");
+                } else if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath())) {
+                    this.sendError(exchange, 404, "Not found");
+                } else {
+                    Map<String, String> params;
+                    try {
+                        params = parseParams(exchange.getRequestURI().getRawQuery());
+                    } catch (IllegalArgumentException e) { // A malformed % escape
+                        this.sendError(exchange, 400, "Invalid query string: " + e.getMessage());
+                        return;
+                    }
+
+                    handler.handle(exchange, params);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                try {
+                    this.sendError(exchange, 500, "There was an error trying to process the request");
+                } catch (IOException | IllegalStateException ignored) {} // The response was already started
+
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    private static Map<String, String> parseParams(@Nullable String query) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) {
+            return params;
+        }
+
+        for (String param : query.split("&")) {
+            int separator = param.indexOf('=');
+            if (separator == -1) {
+                params.put(URLDecoder.decode(param, "UTF-8"), "");
+            } else {
+                params.put(URLDecoder.decode(param.substring(0, separator), "UTF-8"), URLDecoder.decode(param.substring(separator + 1), "UTF-8"));
+            }
+        }
+
+        return params;
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange, Map<String, String> params) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface JsonBody {
+        void write(JsonWriter jsonWriter) throws IOException;
+    }
+}
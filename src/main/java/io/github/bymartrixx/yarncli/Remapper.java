@@ -0,0 +1,249 @@
+package io.github.bymartrixx.yarncli;
+
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Rewrites the intermediary names in a text, like a crash report or a stack trace, to another namespace. The text is
+ * read once, in chunks, so any amount of it is remapped with the same memory.
+ *
+ * <p>{@code class_<n>}, {@code field_<n>} and {@code method_<n>} are replaced wherever they appear as a whole
+ * identifier. A class with the intermediary package, like {@code net.minecraft.class_1297} or
+ * {@code net/minecraft/class_1297}, is replaced with its full name using the same separator, any other class with
+ * its name without the package.</p>
+ *
+ * <p>A remapper can only be used by one thread at a time.</p>
+ */
+public class Remapper {
+    public static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * Identifiers are remapped early once they grow past this length, which only happens with text that isn't code.
+     */
+    private static final int MAX_TOKEN_LENGTH = 4096;
+    private static final String INTERMEDIARY_PACKAGE = "net/minecraft/";
+
+    private final VersionMappings mappings;
+    private final int namespace;
+
+    private final char[] token = new char[MAX_TOKEN_LENGTH];
+    private int tokenLength;
+    /**
+     * Output is collected here and written in large chunks, as writers are usually synchronized.
+     */
+    private final char[] output = new char[BUFFER_SIZE];
+    private int outputLength;
+    private Writer writer;
+    private long remapped;
+
+    /**
+     * @param namespace {@link MappingsManager#NS_NAMED} or {@link MappingsManager#NS_OFFICIAL}
+     * @throws IllegalArgumentException if the namespace is neither
+     */
+    public Remapper(VersionMappings mappings, String namespace) {
+        this.mappings = mappings;
+        switch (namespace) {
+            case MappingsManager.NS_OFFICIAL:
+                this.namespace = 0;
+                break;
+            case MappingsManager.NS_NAMED:
+                this.namespace = 2;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown namespace: " + namespace);
+        }
+    }
+
+    /**
+     * Copies {@code reader} to {@code writer}, remapping the intermediary names. Neither is closed.
+     *
+     * @return the number of names remapped
+     */
+    public long remap(Reader reader, Writer writer) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        this.writer = writer;
+        this.tokenLength = 0;
+        this.outputLength = 0;
+        this.remapped = 0;
+
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            int start = 0; // The start of the text since the last identifier, which is copied as is
+            for (int i = 0; i < read; i++) {
+                char c = buffer[i];
+                if (isTokenChar(c)) {
+                    if (this.tokenLength == 0) {
+                        this.write(buffer, start, i - start);
+                    } else if (this.tokenLength == MAX_TOKEN_LENGTH) {
+                        this.writeToken();
+                    }
+
+                    this.token[this.tokenLength++] = c;
+                } else if (this.tokenLength > 0) {
+                    this.writeToken();
+                    start = i;
+                }
+            }
+
+            if (this.tokenLength == 0) {
+                this.write(buffer, start, read - start);
+            }
+        }
+
+        if (this.tokenLength > 0) {
+            this.writeToken();
+        }
+
+        writer.write(this.output, 0, this.outputLength);
+        this.writer = null;
+        return this.remapped;
+    }
+
+    /**
+     * Identifiers are read with their package and outer classes, so a qualified name is remapped at once.
+     */
+    private static boolean isTokenChar(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_' || c == '$' || c == '.'
+                || c == '/';
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '.' || c == '/' || c == '$';
+    }
+
+    /**
+     * Writes and clears the current token, remapping the intermediary names in it.
+     */
+    private void writeToken() throws IOException {
+        char[] token = this.token;
+        int length = this.tokenLength;
+        this.tokenLength = 0;
+
+        int written = 0;
+        for (int i = 0; i < length; i++) {
+            // Intermediary names start with a lowercase letter after a separator
+            if (token[i] != 'c' && token[i] != 'f' && token[i] != 'm' || i > 0 && !isSeparator(token[i - 1])) {
+                continue;
+            }
+
+            MappingsResult.Type type;
+            int digitsStart;
+            if (startsWith(token, i, length, "class_")) {
+                type = MappingsResult.Type.CLASS;
+                digitsStart = i + 6;
+            } else if (startsWith(token, i, length, "field_")) {
+                type = MappingsResult.Type.FIELD;
+                digitsStart = i + 6;
+            } else if (startsWith(token, i, length, "method_")) {
+                type = MappingsResult.Type.METHOD;
+                digitsStart = i + 7;
+            } else {
+                continue;
+            }
+
+            int end = digitsStart;
+            int number = 0;
+            while (end < length && token[end] >= '0' && token[end] <= '9' && end - digitsStart < 9) {
+                number = number * 10 + token[end++] - '0';
+            }
+
+            if (end == digitsStart || end < length && !isSeparator(token[end])) {
+                continue;
+            }
+
+            int id = this.mappings.findIntermediary(type, number);
+            if (id == -1) {
+                continue;
+            }
+
+            String name = this.mappings.getName(type, id, this.namespace);
+            int start = i;
+            if (type == MappingsResult.Type.CLASS) {
+                int packageStart = i - INTERMEDIARY_PACKAGE.length();
+                if (packageStart >= written && isIntermediaryPackage(token, packageStart)) {
+                    start = packageStart; // Replace the package too
+                    name = name.replace('/', token[i - 1]);
+                } else {
+                    // The outer classes were remapped already if they are part of the token
+                    name = name.substring(Math.max(name.lastIndexOf('/'), i > 0 && token[i - 1] == '$' ? name.lastIndexOf('$') : -1) + 1);
+                }
+            }
+
+            this.write(token, written, start - written);
+            this.write(name);
+            written = end;
+            i = end - 1;
+            this.remapped++;
+        }
+
+        this.write(token, written, length - written);
+    }
+
+    private void write(char[] chars, int offset, int length) throws IOException {
+        if (this.outputLength + length > this.output.length) {
+            this.writer.write(this.output, 0, this.outputLength);
+            this.outputLength = 0;
+            if (length > this.output.length) {
+                this.writer.write(chars, offset, length);
+                return;
+            }
+        }
+
+        System.arraycopy(chars, offset, this.output, this.outputLength, length);
+        this.outputLength += length;
+    }
+
+    private void write(String str) throws IOException {
+        if (this.outputLength + str.length() > this.output.length) {
+            this.writer.write(this.output, 0, this.outputLength);
+            this.outputLength = 0;
+            if (str.length() > this.output.length) {
+                this.writer.write(str);
+                return;
+            }
+        }
+
+        str.getChars(0, str.length(), this.output, this.outputLength);
+        this.outputLength += str.length();
+    }
+
+    private static boolean startsWith(char[] token, int offset, int length, String prefix) {
+        if (length - offset < prefix.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length(); i++) {
+            if (token[offset + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return whether {@code net/minecraft/} or {@code net.minecraft.} is at {@code offset}, at the start of the token or
+     * after the {@code L} of a descriptor, like in {@code (ILnet/minecraft/class_1297;)V}
+     */
+    private static boolean isIntermediaryPackage(char[] token, int offset) {
+        if (offset < 0 || offset > 0 && token[offset - 1] != 'L' && !isSeparator(token[offset - 1])) {
+            return false;
+        }
+
+        char separator = token[offset + 3];
+        if (separator != '/' && separator != '.') {
+            return false;
+        }
+
+        for (int i = 0; i < INTERMEDIARY_PACKAGE.length(); i++) {
+            char expected = INTERMEDIARY_PACKAGE.charAt(i);
+            if (token[offset + i] != (expected == '/' ? separator : expected)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
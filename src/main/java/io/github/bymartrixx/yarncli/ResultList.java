@@ -0,0 +1,43 @@
+package io.github.bymartrixx.yarncli;
+
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * The results of a lookup, kept as record ids in the {@link VersionMappings} they were found in. A
+ * {@link MappingsResult} is only created when an element is read, so lookups don't allocate anything per result.
+ */
+public class ResultList extends AbstractList<MappingsResult> implements RandomAccess {
+    private final VersionMappings mappings;
+    private final MappingsResult.Type type;
+    private final int[] ids;
+
+    ResultList(VersionMappings mappings, MappingsResult.Type type, int[] ids) {
+        this.mappings = mappings;
+        this.type = type;
+        this.ids = ids;
+    }
+
+    public MappingsResult.Type getType() {
+        return this.type;
+    }
+
+    /**
+     * @return the class or member id of the result at {@code index}
+     */
+    public int getId(int index) {
+        return this.ids[index];
+    }
+
+    @Override
+    public MappingsResult get(int index) {
+        return this.mappings.getResult(this.type, this.ids[index]);
+    }
+
+    @Override
+    public int size() {
+        return this.ids.length;
+    }
+}
@@ -0,0 +1,38 @@
+package io.github.bymartrixx.yarncli;
+
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Writes mappings results in a machine readable format, one result per line.
+ */
+public interface ResultWriter extends Flushable, Closeable {
+    int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * @param query the query that returned {@code result}
+     */
+    void write(String query, MappingsResult result) throws IOException;
+
+    /**
+     * Creates a writer for a format name, {@code tsv} or {@code jsonl}.
+     *
+     * @throws IllegalArgumentException if the format is unknown
+     */
+    static ResultWriter create(String format, OutputStream outputStream) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        switch (format.toLowerCase(Locale.ROOT)) {
+            case "tsv":
+                return new TsvResultWriter(writer);
+            case "jsonl":
+            case "json":
+                return new JsonLinesResultWriter(writer);
+            default:
+                throw new IllegalArgumentException("Unknown output format: " + format);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.bymartrixx.yarncli;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The string pool of a {@link MappingsFile}: every name and descriptor, stored once as UTF-8 and referenced by id.
+ * Strings are decoded the first time they are read, so opening a version only touches the strings its lookups need.
+ */
+public class StringTable {
+    private final IntBuffer offsets;
+    private final ByteBuffer data;
+    private final String[] strings;
+
+    /**
+     * @param offsets {@code count + 1} offsets into {@code data}, string {@code i} spans {@code offsets[i]} to
+     * {@code offsets[i + 1]}
+     * @param data the UTF-8 encoded strings
+     */
+    public StringTable(IntBuffer offsets, ByteBuffer data, int count) {
+        this.offsets = offsets;
+        this.data = data;
+        this.strings = new String[count];
+    }
+
+    public String get(int id) {
+        // Racy, but strings are immutable, so at worst a string is decoded twice
+        String string = this.strings[id];
+        if (string == null) {
+            string = this.decode(id);
+            this.strings[id] = string;
+        }
+
+        return string;
+    }
+
+    private String decode(int id) {
+        int start = this.offsets.get(id);
+        int length = this.offsets.get(id + 1) - start;
+
+        byte[] bytes = new byte[length];
+        ByteBuffer buffer = this.data.duplicate();
+        buffer.position(start);
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public int size() {
+        return this.strings.length;
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.bymartrixx.yarncli;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Finds the ids of the names that end with a query. Names are sorted by their reversed form, so the names ending with
+ * a suffix form a contiguous range that can be found with a binary search.
+ *
+ * <p>The index is stored as {@code (name string id, id)} pairs in a {@link MappingsFile}.</p>
+ */
+public class SuffixIndex {
+    private final IntBuffer entries;
+    private final StringTable strings;
+
+    public SuffixIndex(IntBuffer entries, StringTable strings) {
+        this.entries = entries;
+        this.strings = strings;
+    }
+
+    /**
+     * Builds the pairs for an index.
+     *
+     * @param nameIds the string ids of the names to index, one array per namespace, each indexed by id
+     * @param strings the string pool the ids refer to
+     */
+    public static int[] build(int[][] nameIds, List<String> strings) {
+        int size = 0;
+        for (int[] namespace : nameIds) {
+            size += namespace.length;
+        }
+
+        int[] names = new int[size];
+        int[] ids = new int[size];
+        Integer[] order = new Integer[size];
+        int i = 0;
+        for (int[] namespace : nameIds) {
+            for (int id = 0; id < namespace.length; id++) {
+                names[i] = namespace[id];
+                ids[i] = id;
+                order[i] = i;
+                i++;
+            }
+        }
+
+        Arrays.sort(order, (a, b) -> compareReversed(strings.get(names[a]), strings.get(names[b])));
+
+        int[] result = new int[size * 2];
+        for (i = 0; i < size; i++) {
+            result[i * 2] = names[order[i]];
+            result[i * 2 + 1] = ids[order[i]];
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the ids of the names ending with {@code suffix}. Each id is set once, even if several of its names
+     * match
+     */
+    public BitSet find(String suffix) {
+        BitSet result = new BitSet();
+
+        int size = this.entries.limit() / 2;
+        for (int i = this.lowerBound(suffix, size); i < size; i++) {
+            if (!this.name(i).endsWith(suffix)) {
+                break;
+            }
+
+            result.set(this.entries.get(i * 2 + 1));
+        }
+
+        return result;
+    }
+
+    private String name(int entry) {
+        return this.strings.get(this.entries.get(entry * 2));
+    }
+
+    private int lowerBound(String suffix, int size) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareReversed(this.name(mid), suffix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Compares two strings as if they were reversed, without reversing them.
+     */
+    static int compareReversed(String a, String b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 1; i <= length; i++) {
+            char charA = a.charAt(a.length() - i);
+            char charB = b.charAt(b.length() - i);
+            if (charA != charB) {
+                return charA - charB;
+            }
+        }
+
+        return a.length() - b.length();
+    }
+}
@@ -0,0 +1,234 @@
+package io.github.bymartrixx.yarncli;
+
+import java.util.*;
+
+/**
+ * Finds the names most similar to a query, by the trigrams (runs of three characters) they have in common. Names are
+ * compared ignoring case and padded with two spaces before and one after, so short queries and the start and end of
+ * names count too. The similarity of a name is the number of trigrams shared with the query divided by the number of
+ * distinct trigrams of both.
+ *
+ * <p>Each indexed name refers to one or more entries, ints chosen by the caller, returned for the matching names.
+ * An entry is only returned once, for its most similar name.</p>
+ */
+public class TrigramIndex {
+    /**
+     * The trigrams each name shares with the query of a search. It is as large as the index, so each thread reuses
+     * one, and a search sets the counts it touched back to zero when done.
+     */
+    private static final ThreadLocal<int[]> SHARED_COUNTS = ThreadLocal.withInitial(() -> new int[0]);
+
+    /**
+     * The distinct trigrams of every name, sorted.
+     */
+    private final long[] trigrams;
+    /**
+     * For each trigram, where its names start in {@link #postings}, plus the end.
+     */
+    private final int[] postingStarts;
+    /**
+     * The names with each trigram, in ascending order.
+     */
+    private final int[] postings;
+    /**
+     * The number of distinct trigrams of each name.
+     */
+    private final int[] trigramCounts;
+    private final int[] nameKeys;
+    private final int[] entryStarts;
+    private final int[] entries;
+
+    private TrigramIndex(long[] trigrams, int[] postingStarts, int[] postings, int[] trigramCounts, int[] nameKeys, int[] entryStarts, int[] entries) {
+        this.trigrams = trigrams;
+        this.postingStarts = postingStarts;
+        this.postings = postings;
+        this.trigramCounts = trigramCounts;
+        this.nameKeys = nameKeys;
+        this.entryStarts = entryStarts;
+        this.entries = entries;
+    }
+
+    /**
+     * @return up to {@code limit} entries of the names most similar to {@code query}, most similar first. Entries of
+     * equally similar names are in the order they were added
+     */
+    public List<Match> search(String query, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        long[] queryTrigrams = trigrams(query);
+        int[] shared = SHARED_COUNTS.get();
+        if (shared.length < this.nameKeys.length) {
+            shared = new int[this.nameKeys.length];
+            SHARED_COUNTS.set(shared);
+        }
+
+        int[] candidates = new int[16];
+        int candidateCount = 0;
+        // Keep the best names in a min-heap. Each name has an entry, and an entry has at most three names, one per
+        // namespace, so this many names have at least limit distinct entries
+        int nameLimit = limit * 3;
+        PriorityQueue<Match> best = new PriorityQueue<>(nameLimit + 1, Match.ORDER);
+
+        try {
+            for (long trigram : queryTrigrams) {
+                int index = Arrays.binarySearch(this.trigrams, trigram);
+                if (index < 0) {
+                    continue;
+                }
+
+                for (int i = this.postingStarts[index]; i < this.postingStarts[index + 1]; i++) {
+                    int name = this.postings[i];
+                    if (shared[name]++ == 0) {
+                        if (candidateCount == candidates.length) {
+                            candidates = Arrays.copyOf(candidates, candidateCount * 2);
+                        }
+
+                        candidates[candidateCount++] = name;
+                    }
+                }
+            }
+
+            for (int i = 0; i < candidateCount; i++) {
+                int name = candidates[i];
+                float score = (float) shared[name] / (queryTrigrams.length + this.trigramCounts[name] - shared[name]);
+                if (best.size() < nameLimit || score > best.peek().score || score == best.peek().score && name < best.peek().name) {
+                    best.add(new Match(name, this.nameKeys[name], score, -1));
+                    if (best.size() > nameLimit) {
+                        best.poll();
+                    }
+                }
+            }
+        } finally {
+            for (int i = 0; i < candidateCount; i++) {
+                shared[candidates[i]] = 0;
+            }
+        }
+
+        Match[] names = best.toArray(new Match[0]);
+        Arrays.sort(names, Match.ORDER.reversed());
+
+        List<Match> result = new ArrayList<>(limit);
+        Set<Integer> added = new HashSet<>(); // An entry can have several matching names
+        for (Match name : names) {
+            for (int i = this.entryStarts[name.name]; i < this.entryStarts[name.name + 1] && result.size() < limit; i++) {
+                if (added.add(this.entries[i])) {
+                    result.add(new Match(name.name, name.key, name.score, this.entries[i]));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the distinct trigrams of {@code name}, sorted, with each trigram packed in a long
+     */
+    static long[] trigrams(String name) {
+        String padded = "  " + name.toLowerCase(Locale.ROOT) + " ";
+        long[] trigrams = new long[padded.length() - 2];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = (long) padded.charAt(i) << 32 | (long) padded.charAt(i + 1) << 16 | padded.charAt(i + 2);
+        }
+
+        Arrays.sort(trigrams);
+        int distinct = 0;
+        for (int i = 0; i < trigrams.length; i++) {
+            if (i == 0 || trigrams[i] != trigrams[i - 1]) {
+                trigrams[distinct++] = trigrams[i];
+            }
+        }
+
+        return Arrays.copyOf(trigrams, distinct);
+    }
+
+    public static class Match {
+        static final Comparator<Match> ORDER = Comparator.<Match>comparingDouble(match -> match.score)
+                .thenComparing(Comparator.<Match>comparingInt(match -> match.name).reversed());
+
+        private final int name;
+        /**
+         * The key the matching name was added with.
+         */
+        public final int key;
+        public final float score;
+        public final int entry;
+
+        Match(int name, int key, float score, int entry) {
+            this.name = name;
+            this.key = key;
+            this.score = score;
+            this.entry = entry;
+        }
+    }
+
+    public static class Builder {
+        private final Map<Integer, Integer> names = new HashMap<>();
+        private final List<String> texts = new ArrayList<>();
+        private final IntList keys = new IntList(1024);
+        private final List<IntList> entries = new ArrayList<>();
+        private int entryCount;
+
+        /**
+         * Adds an entry for a name.
+         *
+         * @param key identifies the name, names added with the same key must be equal
+         */
+        public void add(int key, String name, int entry) {
+            Integer index = this.names.get(key);
+            if (index == null) {
+                index = this.texts.size();
+                this.names.put(key, index);
+                this.texts.add(name);
+                this.keys.add(key);
+                this.entries.add(new IntList(1));
+            }
+
+            this.entries.get(index).add(entry);
+            this.entryCount++;
+        }
+
+        public TrigramIndex build() {
+            int nameCount = this.texts.size();
+            int[] trigramCounts = new int[nameCount];
+            int[] nameKeys = new int[nameCount];
+            int[] entryStarts = new int[nameCount + 1];
+            int[] entries = new int[this.entryCount];
+
+            // Trigram -> names, names are visited in order so each list is sorted
+            Map<Long, IntList> postings = new HashMap<>();
+            int postingCount = 0;
+            for (int name = 0; name < nameCount; name++) {
+                long[] trigrams = trigrams(this.texts.get(name));
+                trigramCounts[name] = trigrams.length;
+                for (long trigram : trigrams) {
+                    postings.computeIfAbsent(trigram, k -> new IntList()).add(name);
+                }
+                postingCount += trigrams.length;
+
+                nameKeys[name] = this.keys.get(name);
+                IntList nameEntries = this.entries.get(name);
+                System.arraycopy(nameEntries.values(), 0, entries, entryStarts[name], nameEntries.size());
+                entryStarts[name + 1] = entryStarts[name] + nameEntries.size();
+            }
+
+            long[] trigrams = new long[postings.size()];
+            int i = 0;
+            for (long trigram : postings.keySet()) {
+                trigrams[i++] = trigram;
+            }
+            Arrays.sort(trigrams);
+
+            int[] postingStarts = new int[trigrams.length + 1];
+            int[] postingNames = new int[postingCount];
+            for (i = 0; i < trigrams.length; i++) {
+                IntList names = postings.get(trigrams[i]);
+                System.arraycopy(names.values(), 0, postingNames, postingStarts[i], names.size());
+                postingStarts[i + 1] = postingStarts[i] + names.size();
+            }
+
+            return new TrigramIndex(trigrams, postingStarts, postingNames, trigramCounts, nameKeys, entryStarts, entries);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package io.github.bymartrixx.yarncli;
+
+import io.github.bymartrixx.yarncli.object.MappedNames;
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Writes each result as a line of tab separated values:
+ *
+ * <pre>query, type, class official, class intermediary, class named, member official, member intermediary, member named, descriptor, access widener</pre>
+ *
+ * <p>Member columns are empty for class results. The access widener line is written with spaces instead of tabs, so
+ * every line has the same number of columns.</p>
+ */
+public class TsvResultWriter implements ResultWriter {
+    private final Writer writer;
+
+    public TsvResultWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void write(String query, MappingsResult result) throws IOException {
+        this.writer.write(query);
+        this.writer.write('\t');
+        this.writer.write(result.type.name().toLowerCase(Locale.ROOT));
+        this.writeNames(result.classNames);
+        this.writeNames(result.memberNames);
+        this.writer.write('\t');
+        if (result.descriptor != null) {
+            this.writer.write(result.descriptor);
+        }
+        this.writer.write('\t');
+        this.writer.write(result.getAccessWidener().replace('\t', ' '));
+        this.writer.write('\n');
+    }
+
+    private void writeNames(@Nullable MappedNames names) throws IOException {
+        if (names == null) {
+            this.writer.write("\t\t\t");
+            return;
+        }
+
+        this.writer.write('\t');
+        this.writer.write(names.official);
+        this.writer.write('\t');
+        this.writer.write(names.intermediary);
+        this.writer.write('\t');
+        this.writer.write(names.named);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.writer.close();
+    }
+}
@@ -0,0 +1,490 @@
+package io.github.bymartrixx.yarncli;
+
+import static io.github.bymartrixx.yarncli.MappingsFile.CLASS_RECORD_SIZE;
+import static io.github.bymartrixx.yarncli.MappingsFile.MEMBER_RECORD_SIZE;
+
+import io.github.bymartrixx.yarncli.object.MappedNames;
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+import io.github.bymartrixx.yarncli.object.SearchResult;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
+
+/**
+ * The mappings of a single Minecraft version, read from a {@link MappingsFile} along with its lookup indexes.
+ */
+public class VersionMappings {
+    private static final int ENTRY_TYPE_SHIFT = 30;
+    private static final int ENTRY_ID_MASK = (1 << ENTRY_TYPE_SHIFT) - 1;
+    /**
+     * The index of the full class names in {@link #prefixIndexes}.
+     */
+    private static final int FULL_CLASS_NAMES = 3;
+    /**
+     * What comes before the number in intermediary names, by {@link MappingsResult.Type} ordinal.
+     */
+    private static final String[] INTERMEDIARY_PREFIXES = {"class_", "field_", "method_"};
+
+    private final StringTable strings;
+    private final IntBuffer classes;
+    private final IntBuffer fields;
+    private final IntBuffer methods;
+    private final SuffixIndex classSuffixes;
+    private final NameIndex fieldIndex;
+    private final NameIndex methodIndex;
+    private volatile TrigramIndex trigramIndex;
+    /**
+     * The class names without the package, field and method names, by {@link MappingsResult.Type} ordinal, and the
+     * full class names. Each is built the first time it is used. The class indexes have the class ids as keys.
+     */
+    private final AtomicReferenceArray<PrefixIndex> prefixIndexes = new AtomicReferenceArray<>(4);
+    /**
+     * Whether the completion indexes were built or started being built.
+     */
+    private final AtomicBoolean completionPrepared = new AtomicBoolean();
+    /**
+     * The class, field and method ids by the number in their intermediary name, by {@link MappingsResult.Type}
+     * ordinal, or {@code -1} if there is no such name.
+     */
+    private volatile int[][] intermediaryIds;
+
+    /**
+     * @throws IllegalArgumentException if {@code buffer} isn't a whole mappings file of the current format version
+     */
+    public VersionMappings(ByteBuffer buffer) {
+        if (buffer.limit() < MappingsFile.HEADER_SIZE || buffer.getInt(0) != MappingsFile.MAGIC
+                || buffer.getInt(4) != MappingsFile.FORMAT_VERSION) {
+            throw new IllegalArgumentException("Not a mappings file of format version " + MappingsFile.FORMAT_VERSION);
+        }
+
+        int stringCount = buffer.getInt(MappingsFile.STRING_COUNT);
+        int classCount = buffer.getInt(MappingsFile.CLASS_COUNT);
+        int fieldCount = buffer.getInt(MappingsFile.FIELD_COUNT);
+        int methodCount = buffer.getInt(MappingsFile.METHOD_COUNT);
+        int stringOffsetsStart = buffer.getInt(MappingsFile.STRING_OFFSETS_START);
+        int classesStart = buffer.getInt(MappingsFile.CLASSES_START);
+        int fieldsStart = buffer.getInt(MappingsFile.FIELDS_START);
+        int methodsStart = buffer.getInt(MappingsFile.METHODS_START);
+        int classSuffixesStart = buffer.getInt(MappingsFile.CLASS_SUFFIXES_START);
+        int fieldIndexStart = buffer.getInt(MappingsFile.FIELD_INDEX_START);
+        int methodIndexStart = buffer.getInt(MappingsFile.METHOD_INDEX_START);
+        int stringDataStart = buffer.getInt(MappingsFile.STRING_DATA_START);
+
+        // The sections follow each other and the string data ends the file, so a truncated file is rejected here
+        // rather than failing on the first lookup past its end
+        if (stringCount < 0 || classCount < 0 || fieldCount < 0 || methodCount < 0
+                || stringOffsetsStart != MappingsFile.HEADER_SIZE
+                || classesStart != stringOffsetsStart + (stringCount + 1L) * 4
+                || fieldsStart != classesStart + (long) classCount * CLASS_RECORD_SIZE * 4
+                || methodsStart != fieldsStart + (long) fieldCount * MEMBER_RECORD_SIZE * 4
+                || classSuffixesStart != methodsStart + (long) methodCount * MEMBER_RECORD_SIZE * 4
+                || fieldIndexStart < classSuffixesStart || methodIndexStart < fieldIndexStart
+                || stringDataStart < methodIndexStart || stringDataStart > buffer.limit()
+                || stringDataStart + (long) buffer.getInt(classesStart - 4) != buffer.limit()) {
+            throw new IllegalArgumentException("Truncated or corrupted mappings file");
+        }
+
+        this.strings = new StringTable(ints(buffer, stringOffsetsStart, classesStart), slice(buffer, stringDataStart, buffer.limit()), stringCount);
+        this.classes = ints(buffer, classesStart, classesStart + classCount * CLASS_RECORD_SIZE * 4);
+        this.fields = ints(buffer, fieldsStart, fieldsStart + fieldCount * MEMBER_RECORD_SIZE * 4);
+        this.methods = ints(buffer, methodsStart, methodsStart + methodCount * MEMBER_RECORD_SIZE * 4);
+        this.classSuffixes = new SuffixIndex(ints(buffer, classSuffixesStart, fieldIndexStart), this.strings);
+        this.fieldIndex = new NameIndex(ints(buffer, fieldIndexStart, methodIndexStart), this.strings);
+        this.methodIndex = new NameIndex(ints(buffer, methodIndexStart, stringDataStart), this.strings);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int start, int end) {
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(start);
+        slice.limit(end);
+        return slice.slice();
+    }
+
+    private static IntBuffer ints(ByteBuffer buffer, int start, int end) {
+        return slice(buffer, start, end).asIntBuffer();
+    }
+
+    /**
+     * @return the classes with an official, intermediary or named name ending with {@code suffix}, in mappings order
+     */
+    public ResultList getClasses(String suffix) {
+        BitSet found = this.classSuffixes.find(suffix);
+        int[] ids = new int[found.cardinality()];
+        int i = 0;
+        for (int id = found.nextSetBit(0); id >= 0; id = found.nextSetBit(id + 1)) {
+            ids[i++] = id;
+        }
+
+        return new ResultList(this, MappingsResult.Type.CLASS, ids);
+    }
+
+    /**
+     * @return the fields with an official, intermediary or named name equal to {@code name}, in mappings order
+     */
+    public ResultList getFields(String name) {
+        return new ResultList(this, MappingsResult.Type.FIELD, this.fieldIndex.find(name));
+    }
+
+    /**
+     * @return the methods with an official, intermediary or named name equal to {@code name}, in mappings order
+     */
+    public ResultList getMethods(String name) {
+        return new ResultList(this, MappingsResult.Type.METHOD, this.methodIndex.find(name));
+    }
+
+    /**
+     * Hands the ids of the classes, fields or methods with a name matching {@code pattern}, in any namespace, to
+     * {@code consumer} as they are found. Each id is handed once. Class patterns with a {@code /} are matched against
+     * full names and other class patterns against names without the package. Classes are found in mappings order
+     * and members in name order. If the pattern has a literal prefix, only the names starting with it are matched,
+     * found through a {@link PrefixIndex}, otherwise every name is.
+     */
+    public void match(MappingsResult.Type type, NamePattern pattern, IntConsumer consumer) {
+        String prefix = pattern.getLiteralPrefix();
+        if (type == MappingsResult.Type.CLASS) {
+            boolean fullNames = pattern.hasSlash();
+            if (!prefix.isEmpty()) {
+                BitSet found = new BitSet();
+                this.getPrefixIndex(fullNames ? FULL_CLASS_NAMES : MappingsResult.Type.CLASS.ordinal()).forEachKey(prefix, pattern::matches, found::set);
+                for (int id = found.nextSetBit(0); id >= 0; id = found.nextSetBit(id + 1)) {
+                    consumer.accept(id);
+                }
+
+                return;
+            }
+
+            // Without a prefix every name would be matched, so don't build an index for it
+            int classCount = this.classes.limit() / CLASS_RECORD_SIZE;
+            for (int id = 0; id < classCount; id++) {
+                for (int namespace = 0; namespace < 3; namespace++) {
+                    String name = this.strings.get(this.classes.get(id * CLASS_RECORD_SIZE + namespace));
+                    if (!fullNames) {
+                        name = name.substring(name.lastIndexOf('/') + 1);
+                    }
+
+                    if (pattern.matches(name)) {
+                        consumer.accept(id);
+                        break;
+                    }
+                }
+            }
+
+            return;
+        }
+
+        NameIndex index = type == MappingsResult.Type.FIELD ? this.fieldIndex : this.methodIndex;
+        BitSet found = new BitSet();
+        this.getPrefixIndex(type.ordinal()).forEach(prefix, name -> {
+            if (pattern.matches(name)) {
+                for (int id : index.find(name)) {
+                    if (!found.get(id)) {
+                        found.set(id);
+                        consumer.accept(id);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the results of {@link #match(MappingsResult.Type, NamePattern, IntConsumer)}
+     */
+    public ResultList getMatches(MappingsResult.Type type, NamePattern pattern) {
+        IntList ids = new IntList(16);
+        this.match(type, pattern, ids::add);
+        return new ResultList(this, type, Arrays.copyOf(ids.values(), ids.size()));
+    }
+
+    /**
+     * Finds the classes, fields and methods with the names most similar to {@code query}, in any namespace. Classes
+     * are matched by their name without the package. The index is built on the first search.
+     *
+     * @return up to {@code limit} results, most similar first
+     */
+    public List<SearchResult> search(String query, int limit) {
+        List<TrigramIndex.Match> matches = this.getTrigramIndex().search(query, limit);
+        List<SearchResult> result = new ArrayList<>(matches.size());
+        for (TrigramIndex.Match match : matches) {
+            MappingsResult.Type type = MappingsResult.Type.values()[match.entry >>> ENTRY_TYPE_SHIFT];
+            result.add(new SearchResult(this.getResult(type, match.entry & ENTRY_ID_MASK), this.strings.get(match.key), match.score));
+        }
+
+        return result;
+    }
+
+    private TrigramIndex getTrigramIndex() {
+        TrigramIndex index = this.trigramIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = this.trigramIndex;
+                if (index == null) {
+                    index = this.buildTrigramIndex();
+                    this.trigramIndex = index;
+                }
+            }
+        }
+
+        return index;
+    }
+
+    private TrigramIndex buildTrigramIndex() {
+        TrigramIndex.Builder builder = new TrigramIndex.Builder();
+
+        int classCount = this.classes.limit() / CLASS_RECORD_SIZE;
+        for (int id = 0; id < classCount; id++) {
+            for (int namespace = 0; namespace < 3; namespace++) {
+                int nameId = this.classes.get(id * CLASS_RECORD_SIZE + namespace);
+                String name = this.strings.get(nameId);
+                // A class name without a package may also be a member name, which is fine as it is indexed unchanged
+                builder.add(nameId, name.substring(name.lastIndexOf('/') + 1), entry(MappingsResult.Type.CLASS, id));
+            }
+        }
+
+        this.addMembers(builder, MappingsResult.Type.FIELD, this.fields);
+        this.addMembers(builder, MappingsResult.Type.METHOD, this.methods);
+        return builder.build();
+    }
+
+    private void addMembers(TrigramIndex.Builder builder, MappingsResult.Type type, IntBuffer members) {
+        int count = members.limit() / MEMBER_RECORD_SIZE;
+        for (int id = 0; id < count; id++) {
+            for (int namespace = 0; namespace < 3; namespace++) {
+                int nameId = members.get(id * MEMBER_RECORD_SIZE + 1 + namespace);
+                builder.add(nameId, this.strings.get(nameId), entry(type, id));
+            }
+        }
+    }
+
+    /**
+     * Completes a name without building the completion indexes, so it never waits.
+     *
+     * @return up to {@code limit} distinct class, field or method names starting with {@code prefix}, in any
+     * namespace and in ascending order, or {@code null} if the index isn't built yet. Class names are without the
+     * package
+     * @see #prepareCompletion(Executor)
+     */
+    @Nullable
+    public List<String> complete(MappingsResult.Type type, String prefix, int limit) {
+        PrefixIndex prefixIndex = this.prefixIndexes.get(type.ordinal());
+        return prefixIndex == null ? null : prefixIndex.find(prefix, limit);
+    }
+
+    /**
+     * Builds the indexes used by {@link #complete(MappingsResult.Type, String, int)} on {@code executor}, unless they
+     * are built or being built already.
+     */
+    public void prepareCompletion(Executor executor) {
+        if (!this.completionPrepared.compareAndSet(false, true)) {
+            return;
+        }
+
+        executor.execute(() -> {
+            try {
+                for (MappingsResult.Type type : MappingsResult.Type.values()) {
+                    this.getPrefixIndex(type.ordinal());
+                }
+            } catch (RuntimeException e) {
+                this.completionPrepared.set(false); // Let the next completion try again
+                throw e;
+            }
+        });
+    }
+
+    private PrefixIndex getPrefixIndex(int index) {
+        PrefixIndex prefixIndex = this.prefixIndexes.get(index);
+        if (prefixIndex == null) {
+            synchronized (this) {
+                prefixIndex = this.prefixIndexes.get(index);
+                if (prefixIndex == null) {
+                    if (index == MappingsResult.Type.CLASS.ordinal() || index == FULL_CLASS_NAMES) {
+                        prefixIndex = this.buildClassIndex(index == FULL_CLASS_NAMES);
+                    } else {
+                        prefixIndex = new PrefixIndex(this.memberNames(index == MappingsResult.Type.FIELD.ordinal() ? this.fields : this.methods));
+                    }
+
+                    this.prefixIndexes.set(index, prefixIndex);
+                }
+            }
+        }
+
+        return prefixIndex;
+    }
+
+    private PrefixIndex buildClassIndex(boolean fullNames) {
+        int classCount = this.classes.limit() / CLASS_RECORD_SIZE;
+        List<String> names = new ArrayList<>(classCount * 3);
+        int[] ids = new int[classCount * 3];
+        for (int id = 0; id < classCount; id++) {
+            for (int namespace = 0; namespace < 3; namespace++) {
+                String name = this.strings.get(this.classes.get(id * CLASS_RECORD_SIZE + namespace));
+                ids[names.size()] = id;
+                names.add(fullNames ? name : name.substring(name.lastIndexOf('/') + 1));
+            }
+        }
+
+        return new PrefixIndex(names, ids);
+    }
+
+    private List<String> memberNames(IntBuffer members) {
+        int count = members.limit() / MEMBER_RECORD_SIZE;
+        List<String> names = new ArrayList<>(count * 3);
+        for (int i = 0; i < count * MEMBER_RECORD_SIZE; i += MEMBER_RECORD_SIZE) {
+            for (int namespace = 0; namespace < 3; namespace++) {
+                names.add(this.strings.get(members.get(i + 1 + namespace)));
+            }
+        }
+
+        return names;
+    }
+
+    /**
+     * Finds a class, field or method by the number in its intermediary name, like {@code 1234} for
+     * {@code class_1234}, {@code field_1234} or {@code method_1234}. Nested classes are found by their own number.
+     *
+     * @return the id, or {@code -1} if there is none. Methods overriding each other share an intermediary name, in
+     * which case the first one is returned
+     */
+    int findIntermediary(MappingsResult.Type type, int number) {
+        int[] ids = this.getIntermediaryIds()[type.ordinal()];
+        return number >= 0 && number < ids.length ? ids[number] : -1;
+    }
+
+    /**
+     * @return one more than the highest number in the intermediary names of a type
+     */
+    int getIntermediaryLimit(MappingsResult.Type type) {
+        return this.getIntermediaryIds()[type.ordinal()].length;
+    }
+
+    /**
+     * @return the number in the intermediary name of a class, field or method, or {@code -1} if it doesn't have one
+     */
+    int getIntermediaryNumber(MappingsResult.Type type, int id) {
+        return intermediaryNumber(this.getName(type, id, 1), INTERMEDIARY_PREFIXES[type.ordinal()]);
+    }
+
+    private int[][] getIntermediaryIds() {
+        int[][] ids = this.intermediaryIds;
+        if (ids == null) {
+            synchronized (this) {
+                ids = this.intermediaryIds;
+                if (ids == null) {
+                    ids = new int[][]{this.buildIntermediaryIds(MappingsResult.Type.CLASS),
+                            this.buildIntermediaryIds(MappingsResult.Type.FIELD),
+                            this.buildIntermediaryIds(MappingsResult.Type.METHOD)};
+                    this.intermediaryIds = ids;
+                }
+            }
+        }
+
+        return ids;
+    }
+
+    private int[] buildIntermediaryIds(MappingsResult.Type type) {
+        int count = this.getCount(type);
+        int[] numbers = new int[count];
+        int max = -1;
+        for (int id = 0; id < count; id++) {
+            numbers[id] = this.getIntermediaryNumber(type, id);
+            max = Math.max(max, numbers[id]);
+        }
+
+        int[] ids = new int[max + 1];
+        Arrays.fill(ids, -1);
+        for (int id = 0; id < count; id++) {
+            if (numbers[id] != -1 && ids[numbers[id]] == -1) {
+                ids[numbers[id]] = id;
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * @return the number at the end of an intermediary name, after {@code prefix}, or {@code -1} if it doesn't have one
+     */
+    private static int intermediaryNumber(String name, String prefix) {
+        int start = name.length();
+        while (start > 0 && name.charAt(start - 1) >= '0' && name.charAt(start - 1) <= '9') {
+            start--;
+        }
+
+        int digits = name.length() - start;
+        if (digits == 0 || digits > 9 || !name.startsWith(prefix, start - prefix.length())) {
+            return -1;
+        }
+
+        return Integer.parseInt(name.substring(start));
+    }
+
+    /**
+     * Packs a type and id in a trigram index entry.
+     */
+    private static int entry(MappingsResult.Type type, int id) {
+        return type.ordinal() << ENTRY_TYPE_SHIFT | id;
+    }
+
+    /**
+     * @return the number of classes, fields or methods
+     */
+    int getCount(MappingsResult.Type type) {
+        return type == MappingsResult.Type.CLASS ? this.classes.limit() / CLASS_RECORD_SIZE : this.members(type).limit() / MEMBER_RECORD_SIZE;
+    }
+
+    /**
+     * @param namespace 0 for official, 1 for intermediary and 2 for named
+     * @return the name of a class, field or method
+     */
+    String getName(MappingsResult.Type type, int id, int namespace) {
+        if (type == MappingsResult.Type.CLASS) {
+            return this.strings.get(this.classes.get(id * CLASS_RECORD_SIZE + namespace));
+        }
+
+        return this.strings.get(this.members(type).get(id * MEMBER_RECORD_SIZE + 1 + namespace));
+    }
+
+    /**
+     * @return the class id of a field or method
+     */
+    int getOwner(MappingsResult.Type type, int id) {
+        return this.members(type).get(id * MEMBER_RECORD_SIZE);
+    }
+
+    /**
+     * @return the named descriptor of a field or method
+     */
+    String getDescriptor(MappingsResult.Type type, int id) {
+        return this.strings.get(this.members(type).get(id * MEMBER_RECORD_SIZE + 4));
+    }
+
+    private IntBuffer members(MappingsResult.Type type) {
+        return type == MappingsResult.Type.FIELD ? this.fields : this.methods;
+    }
+
+    /**
+     * Creates the result for a class, field or method id.
+     */
+    MappingsResult getResult(MappingsResult.Type type, int id) {
+        if (type == MappingsResult.Type.CLASS) {
+            return new MappingsResult(this.classNames(id));
+        }
+
+        IntBuffer members = type == MappingsResult.Type.FIELD ? this.fields : this.methods;
+        int record = id * MEMBER_RECORD_SIZE;
+        MappedNames memberNames = new MappedNames(this.strings.get(members.get(record + 1)),
+                this.strings.get(members.get(record + 2)), this.strings.get(members.get(record + 3)));
+        return new MappingsResult(type, this.classNames(members.get(record)), memberNames, this.strings.get(members.get(record + 4)));
+    }
+
+    private MappedNames classNames(int id) {
+        int record = id * CLASS_RECORD_SIZE;
+        return new MappedNames(this.strings.get(this.classes.get(record)), this.strings.get(this.classes.get(record + 1)),
+                this.strings.get(this.classes.get(record + 2)));
+    }
+}
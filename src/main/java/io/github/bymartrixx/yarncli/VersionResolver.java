@@ -0,0 +1,240 @@
+package io.github.bymartrixx.yarncli;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import io.github.bymartrixx.yarncli.object.CachedResponse;
+import io.github.bymartrixx.yarncli.object.LauncherMetaResponse;
+import io.github.bymartrixx.yarncli.object.MetaYarnVersion;
+import io.github.bymartrixx.yarncli.object.MinecraftLatest;
+import io.github.bymartrixx.yarncli.object.MinecraftVersion;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpStatus;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.lang.reflect.Type;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves Minecraft and Yarn versions from the Fabric and Mojang meta servers. Responses are kept in memory and
+ * persisted to disk, so lookups within the TTL don't touch the network, stale responses are revalidated with
+ * {@code If-None-Match}/{@code If-Modified-Since}, and the last known response is used when the server can't be
+ * reached.
+ */
+public class VersionResolver {
+    public static final String YARN_URL = "https://meta.fabricmc.net/v2/versions/yarn/{VERSION}?limit=1";
+    public static final String LAUNCHERMETA_URL = "https://launchermeta.mojang.com/mc/game/version_manifest.json";
+    public static final long DEFAULT_TTL = TimeUnit.HOURS.toMillis(1);
+    private static final Type CACHE_TYPE = new TypeToken<Map<String, CachedResponse>>() {}.getType();
+
+    private final Gson gson;
+    private final CloseableHttpClient client;
+    private final String yarnUrl;
+    private final String launcherMetaUrl;
+    @Nullable
+    private final Path cacheFile;
+    private final long ttl;
+
+    private Map<String, CachedResponse> responses;
+
+    /**
+     * @param yarnUrl the Fabric meta url for Yarn versions, {@code {VERSION}} is replaced with the Minecraft version
+     * @param launcherMetaUrl the Mojang version manifest url
+     * @param cacheFile the file the responses are persisted to, or {@code null} to only keep them in memory
+     * @param ttl how long, in milliseconds, a response is used without revalidating it
+     */
+    public VersionResolver(Gson gson, CloseableHttpClient client, String yarnUrl, String launcherMetaUrl, @Nullable Path cacheFile, long ttl) {
+        this.gson = gson;
+        this.client = client;
+        this.yarnUrl = yarnUrl;
+        this.launcherMetaUrl = launcherMetaUrl;
+        this.cacheFile = cacheFile;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Creates a resolver using the default meta servers, persisting responses to {@code versions.json} inside
+     * {@link YarnCli#appPath}. The TTL can be set in seconds with the {@code yarncli.versions.ttl} system property.
+     */
+    public static VersionResolver createDefault(Gson gson, CloseableHttpClient client) {
+        long ttl = Long.getLong("yarncli.versions.ttl", -1L);
+        return new VersionResolver(gson, client, YARN_URL, LAUNCHERMETA_URL, YarnCli.appPath.resolve("versions.json"),
+                ttl < 0 ? DEFAULT_TTL : TimeUnit.SECONDS.toMillis(ttl));
+    }
+
+    /**
+     * @return the latest Yarn version for {@code mcVersion}, or {@code null} if there isn't one
+     * @throws IOException if the meta server can't be reached and there is no cached response
+     */
+    @Nullable
+    public String getLatestYarnVersion(String mcVersion) throws IOException {
+        //noinspection CharsetObjectCanBeUsed // encode(String, Charset) not in java 8
+        String url = this.yarnUrl.replace("{VERSION}", URLEncoder.encode(mcVersion, "utf-8"));
+
+        try {
+            MetaYarnVersion[] versions = this.gson.fromJson(this.get(url), MetaYarnVersion[].class);
+            return versions == null || versions.length == 0 ? null : versions[0].version;
+        } catch (JsonParseException e) {
+            throw new IOException("Invalid response from " + url, e);
+        }
+    }
+
+    /**
+     * @throws IOException if the version manifest can't be fetched and there is no cached response
+     */
+    public MinecraftLatest getLatestMinecraftVersions() throws IOException {
+        try {
+            return this.gson.fromJson(this.get(this.launcherMetaUrl), LauncherMetaResponse.class).latest;
+        } catch (JsonParseException | NullPointerException e) {
+            throw new IOException("Invalid response from " + this.launcherMetaUrl, e);
+        }
+    }
+
+    /**
+     * @return every Minecraft version, newest first
+     * @throws IOException if the version manifest can't be fetched and there is no cached response
+     */
+    public List<MinecraftVersion> getMinecraftVersions() throws IOException {
+        try {
+            List<MinecraftVersion> versions = this.gson.fromJson(this.get(this.launcherMetaUrl), LauncherMetaResponse.class).versions;
+            if (versions == null) {
+                throw new IOException("No versions in " + this.launcherMetaUrl);
+            }
+
+            return versions;
+        } catch (JsonParseException | NullPointerException e) {
+            throw new IOException("Invalid response from " + this.launcherMetaUrl, e);
+        }
+    }
+
+    private String get(String url) throws IOException {
+        CachedResponse cached;
+        synchronized (this) {
+            this.loadCache();
+            cached = this.responses.get(url);
+        }
+
+        long now = System.currentTimeMillis();
+        if (cached != null && now - cached.fetchedAt < this.ttl) {
+            return cached.body;
+        }
+
+        CachedResponse response;
+        try {
+            response = this.fetch(url, cached, now);
+        } catch (IOException e) {
+            if (cached != null) {
+                return cached.body; // Offline, use the last known response
+            }
+
+            throw e;
+        }
+
+        synchronized (this) {
+            this.responses.put(url, response);
+            this.saveCache();
+        }
+
+        return response.body;
+    }
+
+    private CachedResponse fetch(String url, @Nullable CachedResponse cached, long now) throws IOException {
+        HttpGet request = new HttpGet(url);
+        if (cached != null) {
+            if (cached.etag != null) {
+                request.addHeader("If-None-Match", cached.etag);
+            }
+
+            if (cached.lastModified != null) {
+                request.addHeader("If-Modified-Since", cached.lastModified);
+            }
+        }
+
+        try (CloseableHttpResponse response = this.client.execute(request)) {
+            int code = response.getCode();
+            if (code == HttpStatus.SC_NOT_MODIFIED && cached != null) {
+                return new CachedResponse(cached.body, cached.etag, cached.lastModified, now);
+            } else if (code != HttpStatus.SC_OK) {
+                throw new IOException(String.format("Unexpected response code %d from %s", code, url));
+            }
+
+            String body = readString(response.getEntity().getContent());
+            return new CachedResponse(body, headerValue(response.getFirstHeader("ETag")),
+                    headerValue(response.getFirstHeader("Last-Modified")), now);
+        }
+    }
+
+    private void loadCache() {
+        if (this.responses != null) {
+            return;
+        }
+
+        this.responses = new HashMap<>();
+        if (this.cacheFile == null || !Files.isRegularFile(this.cacheFile)) {
+            return;
+        }
+
+        try (Reader reader = Files.newBufferedReader(this.cacheFile, StandardCharsets.UTF_8)) {
+            Map<String, CachedResponse> stored = this.gson.fromJson(reader, CACHE_TYPE);
+            if (stored != null) {
+                this.responses.putAll(stored);
+            }
+        } catch (IOException | JsonParseException e) {
+            e.printStackTrace(); // A broken cache file is replaced on the next save
+        }
+    }
+
+    private void saveCache() {
+        if (this.cacheFile == null) {
+            return;
+        }
+
+        Path tmpFile = null;
+        try {
+            // A unique name, so processes saving at the same time don't write to the same file
+            tmpFile = Files.createTempFile(this.cacheFile.toAbsolutePath().getParent(), this.cacheFile.getFileName().toString(), ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+                this.gson.toJson(this.responses, CACHE_TYPE, writer);
+            }
+
+            Files.move(tmpFile, this.cacheFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (tmpFile != null) {
+                try {
+                    Files.deleteIfExists(tmpFile);
+                } catch (IOException ignored) {
+                }
+            }
+
+            e.printStackTrace(); // The responses are still cached in memory
+        }
+    }
+
+    @Nullable
+    private static String headerValue(@Nullable Header header) {
+        return header == null ? null : header.getValue();
+    }
+
+    private static String readString(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
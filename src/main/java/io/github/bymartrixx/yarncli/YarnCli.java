@@ -5,21 +5,31 @@ import static io.github.bymartrixx.yarncli.MappingsManager.NS_INTERMEDIARY;
 import static io.github.bymartrixx.yarncli.MappingsManager.NS_NAMED;
 import static io.github.bymartrixx.yarncli.MappingsManager.NS_OFFICIAL;
 
+import io.github.bymartrixx.yarncli.object.HistoryEntry;
+import io.github.bymartrixx.yarncli.object.MappedNames;
 import io.github.bymartrixx.yarncli.object.MappingsResult;
 import io.github.bymartrixx.yarncli.object.MinecraftLatest;
-import net.fabricmc.mapping.tree.ClassDef;
-import net.fabricmc.mapping.tree.Descriptored;
-import net.fabricmc.mapping.tree.MethodDef;
+import io.github.bymartrixx.yarncli.object.SearchResult;
+import org.jetbrains.annotations.Nullable;
 import org.jline.reader.LineReader;
 import org.jline.reader.LineReaderBuilder;
 import org.jline.terminal.Terminal;
 import org.jline.terminal.TerminalBuilder;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class YarnCli {
     public static final String[] SPINNING_PROGRESS_BAR_FRAMES = {
@@ -40,8 +50,63 @@ public class YarnCli {
     public static final Path loomPath = Paths.get(System.getProperty("user.home"), ".gradle", "caches", "fabric-loom", "mappings");
 
     private static final String prompt = "yarncli> ";
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
+    /**
+     * The labels of the diff summary, by {@link MappingsResult.Type} ordinal.
+     */
+    private static final String[] DIFF_LABELS = {"Classes", "Fields", "Methods"};
     private static MappingsManager mappingsManager;
     public static MinecraftLatest latest;
+    private static CompletableFuture<MinecraftLatest> latestFuture;
+
+    private static final MappingResultsPrinter resultPrinter = result -> {
+        if (result == null) {
+            return;
+        }
+
+        MappedNames classNames = result.classNames;
+        MappedNames member = result.memberNames;
+
+        underline(); bold();
+        print("Class names");
+        reset();
+        print("\n\n");
+
+        printf("\tOfficial > %s%n", classNames.getName(NS_OFFICIAL));
+        printf("\tIntermediary > %s%n", classNames.getName(NS_INTERMEDIARY));
+        printf("\tYarn > %s%n%n", classNames.getName(NS_NAMED));
+
+        underline(); bold();
+        if (member == null) {
+            print("Access widener");
+            reset();
+            print("\n\n");
+
+            printf("\t%s%n", result.getAccessWidener());
+        } else {
+            print("Member names");
+            reset();
+            print("\n\n");
+
+            printf("\tOfficial > %s%n", member.getName(NS_OFFICIAL));
+            printf("\tIntermediary > %s%n", member.getName(NS_INTERMEDIARY));
+            printf("\tYarn > %s%n%n", member.getName(NS_NAMED));
+
+            underline(); bold();
+            print("Descriptor");
+            reset();
+            print("\n\n");
+
+            printf("\t%s%n%n", result.descriptor);
+
+            underline(); bold();
+            print("Access widener");
+            reset();
+            print("\n\n");
+
+            printf("\t%s%n%n", result.getAccessWidener());
+        }
+    };
 
     public static void main(String[] args) {
         try {
@@ -49,6 +114,63 @@ public class YarnCli {
             Files.createDirectories(appPath);
         } catch (Exception ignored) {}
 
+        String batchInput = null;
+        String batchVersion = null;
+        String batchFormat = null;
+        String remapInput = null;
+        String remapNamespace = null;
+        int serverPort = -1;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--server")) {
+                serverPort = QueryServer.DEFAULT_PORT;
+                if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                    try {
+                        serverPort = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        System.err.printf("Invalid port \"%s\"%n", args[i]);
+                        System.exit(2);
+                    }
+                }
+            } else if (args[i].equals("--batch") && i + 1 < args.length) {
+                batchInput = args[++i];
+            } else if (args[i].equals("--remap") && i + 1 < args.length) {
+                remapInput = args[++i];
+            } else if (args[i].equals("--namespace") && i + 1 < args.length) {
+                remapNamespace = args[++i];
+            } else if (args[i].equals("--version") && i + 1 < args.length) {
+                batchVersion = args[++i];
+            } else if (args[i].equals("--format") && i + 1 < args.length) {
+                batchFormat = args[++i];
+            } else {
+                exitWithUsage(String.format("Unknown or incomplete option \"%s\"", args[i]));
+            }
+        }
+
+        if (batchVersion != null && batchInput == null && remapInput == null) {
+            exitWithUsage("--version can only be used with --batch or --remap");
+        } else if (batchFormat != null && batchInput == null) {
+            exitWithUsage("--format can only be used with --batch");
+        } else if (remapNamespace != null && remapInput == null) {
+            exitWithUsage("--namespace can only be used with --remap");
+        }
+
+        if (batchInput != null) {
+            System.exit(runBatch(batchInput, batchVersion == null ? "release" : batchVersion, batchFormat == null ? "tsv" : batchFormat));
+        }
+
+        if (remapInput != null) {
+            System.exit(runRemap(remapInput, batchVersion == null ? "release" : batchVersion, remapNamespace == null ? NS_NAMED : remapNamespace));
+        }
+
+        if (serverPort != -1) {
+            int exitCode = runServer(serverPort);
+            if (exitCode != 0) {
+                System.exit(exitCode);
+            }
+
+            return; // The server threads keep running
+        }
+
         try {
             // Init mappings manager
             mappingsManager = new MappingsManager();
@@ -56,25 +178,27 @@ public class YarnCli {
             // Prepare user input handler
             Terminal terminal = TerminalBuilder.builder().system(true).build();
             terminal.enterRawMode();
-            LineReader reader = LineReaderBuilder.builder().terminal(terminal).build();
+            LineReader reader = LineReaderBuilder.builder().terminal(terminal).completer(new MappingsCompleter(mappingsManager)).build();
 
-            // Get latest versions
-            SpinningProgressBar spinningProgressBar = new SpinningProgressBar("Getting latest Minecraft versions... ", "[ done ]\n", 50, SPINNING_PROGRESS_BAR_FRAMES);
-            spinningProgressBar.startSpinning();
-            latest = mappingsManager.getLatestMinecraftVersions();
-            spinningProgressBar.stopSpinning();
-
-            // Setup mappingsManager
-            spinningProgressBar = new SpinningProgressBar("Getting Yarn versions... ", "[ done ]\n", 50, SPINNING_PROGRESS_BAR_FRAMES);
-            spinningProgressBar.startSpinning();
-            mappingsManager.cacheMappings(latest.release, latest.snapshot);
-            spinningProgressBar.stopSpinning();
+            // Get the latest versions and load their mappings in the background, queries wait for them if needed
+            latestFuture = mappingsManager.getLatestMinecraftVersionsAsync().thenApply(latest -> {
+                YarnCli.latest = latest;
+                mappingsManager.cacheMappingsAsync(latest.release, latest.snapshot).thenRun(() -> {
+                    mappingsManager.prepareCompletion();
+                    reader.printAbove(formatVersions());
+                });
+                return latest;
+            });
+            latestFuture.exceptionally(e -> {
+                reader.printAbove("Unable to get the latest Minecraft versions: " + e.getCause());
+                return null;
+            });
 
-            printVersions();
             println("Use \"help\" to get a list of commands");
 
             String line;
             while (true) {
+                flush();
                 line = "";
                 line = reader.readLine(String.format("\033[92m%s\033[0m", prompt));
                 line = line.trim();
@@ -89,12 +213,127 @@ public class YarnCli {
                 }
             }
         } catch (Exception e) {
+            flush();
             e.printStackTrace();
             System.exit(1);
         }
     }
 
-    private static void printVersions() {
+    private static void exitWithUsage(String message) {
+        System.err.println(message);
+        System.err.println("Usage: yarn-cli");
+        System.err.println("       yarn-cli --batch <file or -> [--version <version>] [--format tsv|jsonl]");
+        System.err.println("       yarn-cli --server [<port>]");
+        System.err.println("       yarn-cli --remap <file or -> [--version <version>] [--namespace named|official]");
+        System.exit(2);
+    }
+
+    /**
+     * Runs the queries in {@code input} ({@code -} for stdin) against {@code version} without a terminal, writing the
+     * results in {@code format}.
+     *
+     * @return the exit code
+     */
+    private static int runBatch(String input, String version, String format) {
+        ResultWriter writer;
+        try {
+            writer = ResultWriter.create(format, new FileOutputStream(FileDescriptor.out));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return 2;
+        }
+
+        try {
+            mappingsManager = new MappingsManager();
+
+            String mcVersion = resolveBatchVersion(version);
+
+            Reader reader = input.equals("-") ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                    : Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8);
+
+            try (BufferedReader bufferedReader = new BufferedReader(reader)) {
+                int failed = new BatchMode(mappingsManager, mcVersion).run(bufferedReader, writer);
+                return failed == 0 ? 0 : 1;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 1;
+        }
+    }
+
+    /**
+     * Remaps the intermediary names in {@code input} ({@code -} for stdin) to {@code namespace} with the mappings of
+     * {@code version}, writing the text to stdout.
+     *
+     * @return the exit code
+     */
+    private static int runRemap(String input, String version, String namespace) {
+        if (!namespace.equals(NS_NAMED) && !namespace.equals(NS_OFFICIAL)) {
+            System.err.println("Unknown namespace: " + namespace);
+            return 2;
+        }
+
+        try {
+            mappingsManager = new MappingsManager();
+            String mcVersion = resolveBatchVersion(version);
+
+            Reader reader = input.equals("-") ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                    : Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), Remapper.BUFFER_SIZE);
+
+            try (Reader closedReader = reader) {
+                long remapped = mappingsManager.remap(mcVersion, closedReader, writer, namespace);
+                writer.flush();
+                if (remapped == -1) {
+                    System.err.printf("Unable to find Yarn mappings for %s%n", mcVersion);
+                    return 1;
+                }
+
+                return 0;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 1;
+        }
+    }
+
+    /**
+     * @return the Minecraft version for a {@code --version} option, looking up the latest ones if needed
+     */
+    private static String resolveBatchVersion(String version) throws IOException {
+        if (version.equalsIgnoreCase("release") || version.equalsIgnoreCase("snapshot")) {
+            latest = mappingsManager.getLatestMinecraftVersions();
+            return version.equalsIgnoreCase("release") ? latest.release : latest.snapshot;
+        }
+
+        return version;
+    }
+
+    /**
+     * Loads the latest release and snapshot mappings and starts a {@link QueryServer} on {@code port}.
+     *
+     * @return the exit code if the server couldn't be started, or {@code 0}
+     */
+    private static int runServer(int port) {
+        try {
+            mappingsManager = new MappingsManager();
+            latest = mappingsManager.getLatestMinecraftVersions();
+            mappingsManager.cacheMappings(latest.release, latest.snapshot);
+
+            QueryServer server = QueryServer.fromSystemProperties(mappingsManager, port);
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1), "Query server shutdown"));
+
+            System.out.println(formatVersions());
+            System.out.printf("Listening on http://%s:%d%n", server.getAddress().getHostString(), server.getAddress().getPort());
+            return 0;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 1;
+        }
+    }
+
+    private static String formatVersions() {
         String format = "\tRelease: %s%n\tSnapshot: %s%n";
 
         String mc = String.format(format, latest.release, latest.snapshot);
@@ -103,14 +342,37 @@ public class YarnCli {
         String yarnSnaphot = mappingsManager.yarnVersions.getOrDefault(latest.snapshot, "No Yarn mappings found for " + latest.snapshot);
         String yarn = String.format(format, yarnRelease, yarnSnaphot);
 
-        printf("Minecraft versions: %n%s%n", mc);
-        printf("Yarn versions: %n%s%n", yarn);
-        printf("Using latest Minecraft release (%s)%n", latest.release);
+        return String.format("Minecraft versions: %n%s%n", mc)
+                + String.format("Yarn versions: %n%s%n", yarn)
+                + String.format("Using latest Minecraft release (%s)", latest.release);
+    }
+
+    /**
+     * Waits until the latest Minecraft versions are known, which happens in the background on startup.
+     *
+     * @return {@code false} if they couldn't be fetched
+     */
+    private static boolean awaitLatest() {
+        try {
+            latestFuture.join();
+            return true;
+        } catch (CompletionException e) {
+            red();
+            println("Unable to get the latest Minecraft versions");
+            reset();
+            return false;
+        }
     }
 
     public static void executeCommand(String line) {
         String[] args = line.split("\\s");
         String command = args[0];
+        if ((BatchMode.parseType(command) != null || command.equalsIgnoreCase("version") || command.equalsIgnoreCase("search")
+                || command.equalsIgnoreCase("s") || command.equalsIgnoreCase("diff") || command.equalsIgnoreCase("remap")
+                || command.equalsIgnoreCase("across")) && !awaitLatest()) {
+            return;
+        }
+
         switch (command.toLowerCase(Locale.ROOT)) {
             case "help":
                 help();
@@ -120,6 +382,8 @@ public class YarnCli {
             case "c":
                 if (args.length < 2) {
                     println("You must provide a class name!");
+                } else if (NamePattern.isPattern(args[1])) {
+                    printMatches(MappingsResult.Type.CLASS, args[1]);
                 } else {
                     List<MappingsResult> mappingsData;
                     try {
@@ -129,6 +393,7 @@ public class YarnCli {
                         println("There was an error trying to process the request!");
                         reset();
 
+                        flush();
                         e.printStackTrace();
                         break;
                     }
@@ -153,6 +418,8 @@ public class YarnCli {
             case "f":
                 if (args.length < 2) {
                     println("You must provide a field name!");
+                } else if (NamePattern.isPattern(args[1])) {
+                    printMatches(MappingsResult.Type.FIELD, args[1]);
                 } else {
                     List<MappingsResult> mappingsData;
                     try {
@@ -162,6 +429,7 @@ public class YarnCli {
                         println("There was an error trying to process the request!");
                         reset();
 
+                        flush();
                         e.printStackTrace();
                         break;
                     }
@@ -186,6 +454,8 @@ public class YarnCli {
             case "m":
                 if (args.length < 2) {
                     println("You must provide a method name!");
+                } else if (NamePattern.isPattern(args[1])) {
+                    printMatches(MappingsResult.Type.METHOD, args[1]);
                 } else {
                     List<MappingsResult> mappingsData;
                     try {
@@ -195,6 +465,7 @@ public class YarnCli {
                         println("There was an error trying to process the request!");
                         reset();
 
+                        flush();
                         e.printStackTrace();
                         break;
                     }
@@ -214,12 +485,91 @@ public class YarnCli {
                     formatPrint(mappingsData);
                 }
                 break;
+            case "search":
+            case "s":
+                if (args.length < 2) {
+                    println("You must provide a name to search for!");
+                } else {
+                    int limit = DEFAULT_SEARCH_LIMIT;
+                    if (args.length > 2) {
+                        try {
+                            limit = Integer.parseInt(args[2]);
+                        } catch (NumberFormatException e) {
+                            printf("Invalid number of results \"%s\"%n", args[2]);
+                            break;
+                        }
+                    }
+
+                    List<SearchResult> searchResults;
+                    try {
+                        searchResults = mappingsManager.search(args[1], limit);
+                    } catch (Exception e) {
+                        red();
+                        println("There was an error trying to process the request!");
+                        reset();
+
+                        flush();
+                        e.printStackTrace();
+                        break;
+                    }
+
+                    if (searchResults == null) {
+                        red();
+                        println("Unable to find Yarn mappings for " + mappingsManager.getSelectedVersion());
+                        reset();
+                        break;
+                    } else if (searchResults.isEmpty()) {
+                        yellow();
+                        println("Unable to find any similar names");
+                        reset();
+                        break;
+                    }
+
+                    printSearchResults(searchResults);
+                }
+                break;
+            case "history":
+                if (args.length < 2) {
+                    println("You must provide an intermediary name!");
+                } else {
+                    printHistory(args[1]);
+                }
+                break;
+            case "across":
+                MappingsResult.Type acrossType = args.length < 4 ? null : BatchMode.parseType(args[2]);
+                if (args.length < 4) {
+                    println("You must provide the versions, a type and a name!");
+                } else if (acrossType == null) {
+                    printf("Unknown type \"%s\", use class, field or method%n", args[2]);
+                } else {
+                    printAcross(args[1], acrossType, args[3]);
+                }
+                break;
+            case "diff":
+                if (args.length < 3) {
+                    println("You must provide two versions!");
+                } else {
+                    printDiff(mappingsManager.resolveVersion(args[1]), mappingsManager.resolveVersion(args[2]));
+                }
+                break;
+            case "remap":
+                if (args.length < 2) {
+                    println("You must provide a file!");
+                } else {
+                    // remap <file> [named|official] [<output>]
+                    boolean hasNamespace = args.length > 2 && (args[2].equals(NS_NAMED) || args[2].equals(NS_OFFICIAL));
+                    String namespace = hasNamespace ? args[2] : NS_NAMED;
+                    int outputIndex = hasNamespace ? 3 : 2;
+                    remapFile(Paths.get(args[1]), namespace, args.length > outputIndex ? Paths.get(args[outputIndex]) : null);
+                }
+                break;
             case "version":
                 try {
                     String version = args[1];
 
                     if (!version.equals("")) {
                         mappingsManager.selectVersion(version);
+                        mappingsManager.prepareCompletion();
                     }
                 } catch (ArrayIndexOutOfBoundsException e) {
                     lightBlue();
@@ -227,6 +577,38 @@ public class YarnCli {
                     reset();
                 }
                 break;
+            case "prefetch":
+                if (args.length < 2) {
+                    println("You must provide at least one version!");
+                } else {
+                    // Resolve release and snapshot, which may name the same version as another argument
+                    Set<String> versions = new LinkedHashSet<>();
+                    for (int i = 1; i < args.length; i++) {
+                        versions.add(mappingsManager.resolveVersion(args[i]));
+                    }
+
+                    SpinningProgressBar prefetchProgressBar = new SpinningProgressBar(String.format("Downloading Yarn mappings for %d versions... ", versions.size()), "[ done ]\n", 50, SPINNING_PROGRESS_BAR_FRAMES);
+                    prefetchProgressBar.startSpinning();
+                    List<String> failed = mappingsManager.prefetch(versions);
+                    prefetchProgressBar.stopSpinning();
+
+                    if (!failed.isEmpty()) {
+                        red();
+                        printf("Unable to download Yarn mappings for %s%n", String.join(", ", failed));
+                        reset();
+                    }
+                }
+                break;
+            case "cache":
+                MappingsCache cache = mappingsManager.getVersionCache();
+                lightBlue();
+                printf("Cached versions: %d/%d%n", cache.size(), cache.getMaxVersions());
+                printf("Hits: %d, misses: %d, evictions: %d%n", cache.getHits(), cache.getMisses(), cache.getEvictions());
+                if (cache.getUncached() > 0) {
+                    printf("Not cached, as only the selected version could be evicted: %d%n", cache.getUncached());
+                }
+                reset();
+                break;
             default:
                 printf("Unknown command \"%s\"%n", command);
                 break;
@@ -245,15 +627,44 @@ public class YarnCli {
                 "\tmethod <method>     Retrieve mappings for a given method name",
                 "\tym <method>         -> method <method>",
                 "\tm <method>          -> method <method>",
+                "\tsearch <name> [<n>] Find the n (default 10) classes, fields",
+                "\t                      and methods with the most similar names",
+                "\ts <name> [<n>]      -> search <name> [<n>]",
+                "\tacross <versions> <class|field|method> <name>",
+                "\t                    Look up a name in several versions, like",
+                "\t                      1.16.3,1.16.5 or 1.16..1.16.5",
+                "\thistory <name>      Show the names of an intermediary class,",
+                "\t                      field or method, like method_1234, in",
+                "\t                      every version loaded so far",
+                "\tdiff <from> <to>    Show the classes, fields and methods added,",
+                "\t                      removed or renamed between two versions",
+                "\tremap <file> [named|official] [<output>]",
+                "\t                    Remap the intermediary names in a file,",
+                "\t                      like a crash report, and print it or",
+                "\t                      write it to output",
                 "\tversion [<version>] Change the Minecraft version.",
                 "\t                      Use \"release\" for latest release and",
                 "\t                      \"snapshot\" for latest snapshot. If",
                 "\t                      version unspecified shows which version",
                 "\t                      is currently in use",
+                "\tprefetch <version>...",
+                "\t                    Download the mappings of several versions",
+                "\t                      in parallel, without changing the",
+                "\t                      selected version",
+                "\tcache               Show mappings cache statistics",
                 "\thelp                Show this message",
                 "\th                   -> help",
                 "\texit                Exit the program",
                 "\tquit                -> exit",
+                "",
+                "Class, field and method names can be globs, like get*Pos (* and",
+                "? don't match /, ** does), or regular expressions between",
+                "slashes, like /(get|set)Pos.?/",
+                "",
+                "Run with \"--batch <file>\" (or \"--batch -\" for stdin) to run one",
+                "class, field or method query per line without the prompt,",
+                "optionally with \"--version <version>\" (defaults to release)",
+                "and \"--format tsv|jsonl\" (defaults to tsv)",
         };
 
         for (String s : help) {
@@ -262,65 +673,394 @@ public class YarnCli {
     }
 
     public static void formatPrint(List<MappingsResult> results) {
-        MappingResultsPrinter printer = result -> {
-            if (result == null) {
-                return;
+        formatPrint(mappingsManager.getSelectedVersion(), results);
+    }
+
+    public static void formatPrint(String mcVersion, List<MappingsResult> results) {
+        underline(); bold();
+        printf("Minecraft %s / %d %s", mcVersion, results.size(), results.size() > 1 ? "results" : "result");
+        reset();
+        print("\n\n");
+
+        for (MappingsResult result : results) {
+            resultPrinter.print(result);
+        }
+    }
+
+    private static void remapFile(Path input, String namespace, @Nullable Path output) {
+        String mcVersion = mappingsManager.getSelectedVersion();
+        long remapped;
+        try (Reader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            if (output == null) {
+                // Printed through the output buffer, so it is flushed as it grows
+                Writer writer = new Writer() {
+                    @Override
+                    public void write(char[] buffer, int offset, int length) {
+                        print(new String(buffer, offset, length));
+                    }
+
+                    @Override
+                    public void write(String str) {
+                        print(str);
+                    }
+
+                    @Override
+                    public void flush() {
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+                remapped = mappingsManager.remap(mcVersion, reader, writer, namespace);
+                println("");
+            } else {
+                try (Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+                    remapped = mappingsManager.remap(mcVersion, reader, writer, namespace);
+                }
             }
+        } catch (NoSuchFileException e) {
+            red();
+            println("Unable to find the file " + e.getFile());
+            reset();
+            return;
+        } catch (Exception e) {
+            red();
+            println("There was an error trying to process the request!");
+            reset();
 
-            ClassDef classDef = result.classDef;
-            Descriptored member = result.member;
+            flush();
+            e.printStackTrace();
+            return;
+        }
 
-            underline(); bold();
-            print("Class names");
+        if (remapped == -1) {
+            red();
+            println("Unable to find Yarn mappings for " + mcVersion);
             reset();
-            print("\n\n");
+            return;
+        }
 
-            printf("\tOfficial > %s%n", classDef.getName(NS_OFFICIAL));
-            printf("\tIntermediary > %s%n", classDef.getName(NS_INTERMEDIARY));
-            printf("\tYarn > %s%n%n", classDef.getName(NS_NAMED));
+        lightBlue();
+        printf("Remapped %d names to %s using Minecraft %s%s%n", remapped, namespace, mcVersion, output == null ? "" : " into " + output);
+        reset();
+    }
 
-            underline(); bold();
-            if (member == null) {
-                print("Access widener");
-                reset();
-                print("\n\n");
+    /**
+     * Runs a query against a list or range of versions, printing a row for each result with its names in every
+     * namespace.
+     */
+    private static void printAcross(String versions, MappingsResult.Type type, String query) {
+        Map<String, List<MappingsResult>> results;
+        try {
+            List<String> mcVersions = mappingsManager.resolveVersions(versions);
+            if (mcVersions.isEmpty()) {
+                println("You must provide at least one version!");
+                return;
+            }
 
-                printf("\taccessible\tclass\t%s%n", classDef.getName(NS_NAMED));
-            } else {
-                print("Member names");
-                reset();
-                print("\n\n");
+            results = mappingsManager.getMappings(mcVersions, type, query);
+        } catch (IllegalArgumentException e) {
+            red();
+            println(e.getMessage());
+            reset();
+            return;
+        } catch (Exception e) {
+            red();
+            println("There was an error trying to process the request!");
+            reset();
 
-                printf("\tOfficial > %s%n", member.getName(NS_OFFICIAL));
-                printf("\tIntermediary > %s%n", member.getName(NS_INTERMEDIARY));
-                printf("\tYarn > %s%n%n", member.getName(NS_NAMED));
+            flush();
+            e.printStackTrace();
+            return;
+        }
 
-                String type = (member instanceof MethodDef) ? "method" : "field";
+        String[] header = {"Minecraft", "Official", "Intermediary", "Yarn"};
+        List<String[]> rows = new ArrayList<>();
+        int[] widths = new int[header.length];
+        for (int i = 0; i < header.length; i++) {
+            widths[i] = header[i].length();
+        }
 
-                underline(); bold();
-                print("Descriptor");
-                reset();
-                print("\n\n");
+        for (Map.Entry<String, List<MappingsResult>> entry : results.entrySet()) {
+            List<MappingsResult> versionResults = entry.getValue();
+            if (versionResults == null || versionResults.isEmpty()) {
+                // Printed as a message instead of names
+                rows.add(new String[]{entry.getKey(), versionResults == null ? "No Yarn mappings found" : "No matches"});
+                widths[0] = Math.max(widths[0], entry.getKey().length());
+                continue;
+            }
 
-                printf("\t%s%n%n", member.getDescriptor(NS_NAMED));
+            for (int i = 0; i < versionResults.size(); i++) {
+                MappingsResult result = versionResults.get(i);
+                String[] row = {i == 0 ? entry.getKey() : "", acrossName(result, NS_OFFICIAL), acrossName(result, NS_INTERMEDIARY),
+                        acrossName(result, NS_NAMED)};
+                for (int column = 0; column < row.length; column++) {
+                    widths[column] = Math.max(widths[column], row[column].length());
+                }
 
-                underline(); bold();
-                print("Access widener");
+                rows.add(row);
+            }
+        }
+
+        String format = String.format("%%-%ds  %%-%ds  %%-%ds  %%s%%n", widths[0], widths[1], widths[2]);
+        underline(); bold();
+        printf(format, (Object[]) header);
+        reset();
+        for (String[] row : rows) {
+            if (row.length == 2) {
+                printf("%-" + widths[0] + "s  ", row[0]);
+                if (row[1].equals("No matches")) {
+                    yellow();
+                } else {
+                    red();
+                }
+                println(row[1]);
                 reset();
-                print("\n\n");
+            } else {
+                printf(format, (Object[]) row);
+            }
+        }
+    }
+
+    /**
+     * Prints the names of a class, field or method in every indexed version, highlighting the versions where the
+     * Yarn name changed.
+     */
+    private static void printHistory(String name) {
+        // Accept full class names, like net/minecraft/class_1234
+        String simpleName = name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('.')) + 1);
+        int separator = simpleName.lastIndexOf('_');
+        MappingsResult.Type type = null;
+        int number = -1;
+        if (separator != -1 && isNumber(simpleName.substring(separator + 1))) {
+            type = BatchMode.parseType(simpleName.substring(0, separator));
+            number = Integer.parseInt(simpleName.substring(separator + 1));
+        }
+
+        if (type == null) {
+            yellow();
+            printf("\"%s\" isn't an intermediary name, like class_1234, field_1234 or method_1234%n", name);
+            reset();
+            return;
+        }
+
+        List<HistoryEntry> entries;
+        try {
+            entries = mappingsManager.getHistory(type, number);
+        } catch (Exception e) {
+            red();
+            println("There was an error trying to process the request!");
+            reset();
+
+            flush();
+            e.printStackTrace();
+            return;
+        }
+
+        if (entries == null || entries.isEmpty()) {
+            yellow();
+            printf("%s isn't in any indexed version. Versions are indexed once they are loaded%n", simpleName);
+            reset();
+            return;
+        }
+
+        int[] widths = {"Minecraft".length(), "Yarn".length(), "Official".length()};
+        for (HistoryEntry entry : entries) {
+            widths[0] = Math.max(widths[0], entry.mcVersion.length());
+            widths[1] = Math.max(widths[1], entry.yarnVersion.length());
+            widths[2] = Math.max(widths[2], entry.official.length());
+        }
 
-                printf("\taccessible\t%s\t%s\t%s\t%s%n%n", type, classDef.getName(NS_NAMED), member.getName(NS_NAMED), member.getDescriptor(NS_NAMED));
+        String format = String.format("%%-%ds  %%-%ds  %%-%ds  ", widths[0], widths[1], widths[2]);
+        underline(); bold();
+        printf(format + "%s%n", "Minecraft", "Yarn", "Official", "Named");
+        reset();
+        String previous = null;
+        for (HistoryEntry entry : entries) {
+            printf(format, entry.mcVersion, entry.yarnVersion, entry.official);
+            if (previous != null && !previous.equals(entry.named)) {
+                yellow(); // Renamed
             }
-        };
+            println(entry.named);
+            reset();
+            previous = entry.named;
+        }
+    }
+
+    private static boolean isNumber(String string) {
+        if (string.isEmpty() || string.length() > 9) {
+            return false;
+        }
+
+        for (int i = 0; i < string.length(); i++) {
+            if (string.charAt(i) < '0' || string.charAt(i) > '9') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the full name of a class, or the class name without the package and the member name of a member
+     */
+    private static String acrossName(MappingsResult result, String namespace) {
+        if (result.memberNames == null) {
+            return result.classNames.getName(namespace);
+        }
+
+        String className = result.classNames.getName(namespace);
+        return className.substring(className.lastIndexOf('/') + 1) + "." + result.memberNames.getName(namespace);
+    }
+
+    private static void printDiff(String fromVersion, String toVersion) {
+        int[][] counts = new int[MappingsResult.Type.values().length][3]; // Added, removed, renamed
+        boolean found;
+        try {
+            found = mappingsManager.diff(fromVersion, toVersion, new MappingsDiff.Listener() {
+                @Override
+                public void added(MappingsResult result) {
+                    counts[result.type.ordinal()][0]++;
+                    green();
+                    printf("+ %-6s %s%n", typeName(result), diffName(result, NS_NAMED));
+                    reset();
+                }
+
+                @Override
+                public void removed(MappingsResult result) {
+                    counts[result.type.ordinal()][1]++;
+                    red();
+                    printf("- %-6s %s%n", typeName(result), diffName(result, NS_NAMED));
+                    reset();
+                }
+
+                @Override
+                public void renamed(MappingsResult from, MappingsResult to) {
+                    counts[from.type.ordinal()][2]++;
+                    yellow();
+                    printf("~ %-6s %s -> %s%n", typeName(from), diffName(from, NS_NAMED), diffName(to, NS_NAMED));
+                    reset();
+                }
+            });
+        } catch (Exception e) {
+            red();
+            println("There was an error trying to process the request!");
+            reset();
+
+            flush();
+            e.printStackTrace();
+            return;
+        }
+
+        if (!found) {
+            red();
+            printf("Unable to find Yarn mappings for %s or %s%n", fromVersion, toVersion);
+            reset();
+            return;
+        }
 
+        print("\n");
+        underline(); bold();
+        printf("Minecraft %s -> %s", fromVersion, toVersion);
+        reset();
+        print("\n\n");
+        for (MappingsResult.Type type : MappingsResult.Type.values()) {
+            int[] typeCounts = counts[type.ordinal()];
+            printf("\t%-8s %d added, %d removed, %d renamed%n", DIFF_LABELS[type.ordinal()], typeCounts[0], typeCounts[1], typeCounts[2]);
+        }
+        print("\n");
+    }
+
+    private static String typeName(MappingsResult result) {
+        return result.type.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return the name of a class, or the class and member names of a member, followed by the intermediary name
+     */
+    private static String diffName(MappingsResult result, String namespace) {
+        if (result.memberNames == null) {
+            return String.format("%s (%s)", result.classNames.getName(namespace), result.classNames.getName(NS_INTERMEDIARY));
+        }
+
+        return String.format("%s.%s (%s)", result.classNames.getName(namespace), result.memberNames.getName(namespace),
+                result.memberNames.getName(NS_INTERMEDIARY));
+    }
+
+    /**
+     * Runs a glob or regular expression query, printing the results as they are found.
+     */
+    private static void printMatches(MappingsResult.Type type, String pattern) {
+        String mcVersion = mappingsManager.getSelectedVersion();
+        boolean[] started = {false};
+        int count;
+        try {
+            // Results are printed as they are found, so the header doesn't have the count yet
+            count = mappingsManager.forEachMatch(mcVersion, type, pattern, result -> {
+                if (!started[0]) {
+                    started[0] = true;
+                    underline(); bold();
+                    printf("Minecraft %s / matches of %s", mcVersion, pattern);
+                    reset();
+                    print("\n\n");
+                }
+
+                resultPrinter.print(result);
+            });
+        } catch (IllegalArgumentException e) {
+            yellow();
+            printf("Invalid pattern: %s%n", e.getMessage());
+            reset();
+            return;
+        } catch (Exception e) {
+            red();
+            println("There was an error trying to process the request!");
+            reset();
+
+            flush();
+            e.printStackTrace();
+            return;
+        }
+
+        if (count == -1) {
+            red();
+            println("Unable to find Yarn mappings for " + mcVersion);
+            reset();
+        } else if (count == 0) {
+            yellow();
+            println("Unable to find any matching names");
+            reset();
+        } else {
+            lightBlue();
+            printf("End of matches: %d %s%n", count, count > 1 ? "results" : "result");
+            reset();
+        }
+    }
+
+    public static void printSearchResults(List<SearchResult> results) {
         underline(); bold();
         printf("Minecraft %s / %d %s", mappingsManager.getSelectedVersion(), results.size(), results.size() > 1 ? "results" : "result");
         reset();
         print("\n\n");
 
-        for (MappingsResult result : results) {
-            printer.print(result);
+        for (SearchResult searchResult : results) {
+            MappingsResult result = searchResult.result;
+            MappedNames names = result.memberNames == null ? result.classNames : result.memberNames;
+
+            printf("\t%3d%% ", Math.round(searchResult.score * 100));
+            bold();
+            printf("%-6s ", result.type.name().toLowerCase(Locale.ROOT));
+            reset();
+            printf("%s > %s > %s", names.getName(NS_OFFICIAL), names.getName(NS_INTERMEDIARY), names.getName(NS_NAMED));
+            if (result.memberNames != null) {
+                gray();
+                printf(" in %s", result.classNames.getName(NS_NAMED));
+                reset();
+            }
+            print("\n");
         }
+        print("\n");
     }
 
     static class SpinningProgressBar extends Thread {
@@ -355,6 +1095,7 @@ public class YarnCli {
             OutputUtil.print(this.msg);
             reset();
             OutputUtil.print(this.doneMsg);
+            OutputUtil.flush();
         }
 
         @Override
@@ -367,6 +1108,7 @@ public class YarnCli {
                 OutputUtil.print(this.msg);
                 reset();
                 OutputUtil.print(this.frames[this.frameNumber]);
+                OutputUtil.flush();
                 this.frameNumber = (this.frameNumber + 1) % this.frames.length;
 
                 try {
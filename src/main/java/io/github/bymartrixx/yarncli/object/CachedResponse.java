@@ -0,0 +1,19 @@
+package io.github.bymartrixx.yarncli.object;
+
+import org.jetbrains.annotations.Nullable;
+
+public class CachedResponse {
+    public final String body;
+    @Nullable
+    public final String etag;
+    @Nullable
+    public final String lastModified;
+    public final long fetchedAt;
+
+    public CachedResponse(String body, @Nullable String etag, @Nullable String lastModified, long fetchedAt) {
+        this.body = body;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.fetchedAt = fetchedAt;
+    }
+}
@@ -0,0 +1,15 @@
+package io.github.bymartrixx.yarncli.object;
+
+public class HistoryEntry {
+    public final String mcVersion;
+    public final String yarnVersion;
+    public final String official;
+    public final String named;
+
+    public HistoryEntry(String mcVersion, String yarnVersion, String official, String named) {
+        this.mcVersion = mcVersion;
+        this.yarnVersion = yarnVersion;
+        this.official = official;
+        this.named = named;
+    }
+}
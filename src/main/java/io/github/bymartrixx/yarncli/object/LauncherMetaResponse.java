@@ -4,9 +4,12 @@ import java.util.List;
 
 public class LauncherMetaResponse {
     public final MinecraftLatest latest;
-    public final List<?> versions;
+    /**
+     * Every version, newest first.
+     */
+    public final List<MinecraftVersion> versions;
 
-    public LauncherMetaResponse(MinecraftLatest latest, List<?> versions) {
+    public LauncherMetaResponse(MinecraftLatest latest, List<MinecraftVersion> versions) {
         this.latest = latest;
         this.versions = versions;
     }
@@ -0,0 +1,30 @@
+package io.github.bymartrixx.yarncli.object;
+
+import static io.github.bymartrixx.yarncli.MappingsManager.NS_INTERMEDIARY;
+import static io.github.bymartrixx.yarncli.MappingsManager.NS_NAMED;
+import static io.github.bymartrixx.yarncli.MappingsManager.NS_OFFICIAL;
+
+public class MappedNames {
+    public final String official;
+    public final String intermediary;
+    public final String named;
+
+    public MappedNames(String official, String intermediary, String named) {
+        this.official = official;
+        this.intermediary = intermediary;
+        this.named = named;
+    }
+
+    public String getName(String namespace) {
+        switch (namespace) {
+            case NS_OFFICIAL:
+                return this.official;
+            case NS_INTERMEDIARY:
+                return this.intermediary;
+            case NS_NAMED:
+                return this.named;
+            default:
+                throw new IllegalArgumentException("Unknown namespace: " + namespace);
+        }
+    }
+}
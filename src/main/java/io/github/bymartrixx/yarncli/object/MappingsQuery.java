@@ -0,0 +1,11 @@
+package io.github.bymartrixx.yarncli.object;
+
+public class MappingsQuery {
+    public final MappingsResult.Type type;
+    public final String query;
+
+    public MappingsQuery(MappingsResult.Type type, String query) {
+        this.type = type;
+        this.query = query;
+    }
+}
@@ -1,16 +1,44 @@
 package io.github.bymartrixx.yarncli.object;
 
-import net.fabricmc.mapping.tree.ClassDef;
-import net.fabricmc.mapping.tree.Descriptored;
 import org.jetbrains.annotations.Nullable;
 
 public class MappingsResult {
-    public final ClassDef classDef;
+    public final Type type;
+    public final MappedNames classNames;
     @Nullable
-    public final Descriptored member;
+    public final MappedNames memberNames;
+    /**
+     * The member descriptor, in the named namespace.
+     */
+    @Nullable
+    public final String descriptor;
+
+    public MappingsResult(MappedNames classNames) {
+        this(Type.CLASS, classNames, null, null);
+    }
+
+    public MappingsResult(Type type, MappedNames classNames, @Nullable MappedNames memberNames, @Nullable String descriptor) {
+        this.type = type;
+        this.classNames = classNames;
+        this.memberNames = memberNames;
+        this.descriptor = descriptor;
+    }
+
+    /**
+     * @return the access widener line that makes this class or member accessible
+     */
+    public String getAccessWidener() {
+        if (this.memberNames == null) {
+            return "accessible\tclass\t" + this.classNames.named;
+        }
+
+        String type = this.type == Type.METHOD ? "method" : "field";
+        return "accessible\t" + type + "\t" + this.classNames.named + "\t" + this.memberNames.named + "\t" + this.descriptor;
+    }
 
-    public MappingsResult(ClassDef classDef, @Nullable Descriptored member) {
-        this.classDef = classDef;
-        this.member = member;
+    public enum Type {
+        CLASS,
+        FIELD,
+        METHOD
     }
 }
@@ -0,0 +1,14 @@
+package io.github.bymartrixx.yarncli.object;
+
+public class MinecraftVersion {
+    public final String id;
+    /**
+     * {@code release}, {@code snapshot}, {@code old_beta} or {@code old_alpha}.
+     */
+    public final String type;
+
+    public MinecraftVersion(String id, String type) {
+        this.id = id;
+        this.type = type;
+    }
+}
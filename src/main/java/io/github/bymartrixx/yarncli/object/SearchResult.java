@@ -0,0 +1,19 @@
+package io.github.bymartrixx.yarncli.object;
+
+public class SearchResult {
+    public final MappingsResult result;
+    /**
+     * The matching name, in any namespace.
+     */
+    public final String name;
+    /**
+     * How similar the name is to the query, from 0 to 1.
+     */
+    public final float score;
+
+    public SearchResult(MappingsResult result, String name, float score) {
+        this.result = result;
+        this.name = name;
+        this.score = score;
+    }
+}
@@ -0,0 +1,162 @@
+package io.github.bymartrixx.yarncli;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs {@link Downloader#download(String, Path)} against a local server that supports range requests.
+ */
+public class DownloaderTest {
+    private static final byte[] BODY = new byte[256 * 1024];
+
+    static {
+        new Random(42).nextBytes(BODY);
+    }
+
+    private HttpServer server;
+    private Downloader downloader;
+    private Path directory;
+    private Path target;
+
+    private volatile String sha1;
+    private final AtomicReference<String> lastRange = new AtomicReference<>();
+
+    @Before
+    public void setUp() throws IOException, NoSuchAlgorithmException {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-1").digest(BODY)) {
+            hex.append(String.format("%02x", b));
+        }
+        this.sha1 = hex.toString();
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/file.jar", exchange -> {
+            byte[] body = BODY;
+            int status = 200;
+            if (exchange.getRequestURI().getPath().endsWith(".sha1")) {
+                body = (this.sha1 + "  file.jar").getBytes(StandardCharsets.US_ASCII);
+            } else {
+                String range = exchange.getRequestHeaders().getFirst("Range");
+                this.lastRange.set(range);
+                if (range != null) {
+                    int start = Integer.parseInt(range.substring("bytes=".length(), range.length() - 1));
+                    body = Arrays.copyOfRange(BODY, start, BODY.length);
+                    status = 206;
+                }
+            }
+
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+            exchange.close();
+        });
+        this.server.start();
+
+        this.downloader = new Downloader();
+        this.directory = Files.createTempDirectory("yarncli-test");
+        this.target = this.directory.resolve("file.jar");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.server.stop(0);
+        this.downloader.getClient().close();
+        TestMappings.delete(this.directory);
+    }
+
+    private String url() {
+        return "http://" + this.server.getAddress().getHostString() + ":" + this.server.getAddress().getPort() + "/file.jar";
+    }
+
+    private void assertOnlyTarget() throws IOException {
+        assertArrayEquals(BODY, Files.readAllBytes(this.target));
+        try (Stream<Path> files = Files.list(this.directory)) {
+            assertEquals("Temporary files should be moved or deleted", 1, files.count());
+        }
+    }
+
+    @Test
+    public void downloadsAndVerifies() throws IOException {
+        this.downloader.download(this.url(), this.target);
+        this.assertOnlyTarget();
+    }
+
+    @Test
+    public void resumesFromPartialFile() throws IOException {
+        Files.write(this.directory.resolve("file.jar.part"), Arrays.copyOf(BODY, 1000));
+        this.downloader.download(this.url(), this.target);
+
+        assertEquals("bytes=1000-", this.lastRange.get());
+        this.assertOnlyTarget();
+    }
+
+    @Test
+    public void deletesDataOnChecksumMismatch() throws IOException {
+        this.sha1 = "0000000000000000000000000000000000000000";
+        try {
+            this.downloader.download(this.url(), this.target);
+            fail("The checksum should not match");
+        } catch (IOException expected) {
+        }
+
+        try (Stream<Path> files = Files.list(this.directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    public void downloadsSameFileConcurrently() throws InterruptedException, IOException {
+        // A partial file for one of the downloads to claim
+        Files.write(this.directory.resolve("file.jar.part"), Arrays.copyOf(BODY, 5000));
+
+        Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    this.downloader.download(this.url(), this.target);
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            threads[i].start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(failures.toString(), failures.isEmpty());
+        assertFalse(Files.exists(this.directory.resolve("file.jar.part")));
+        this.assertOnlyTarget();
+    }
+}
@@ -0,0 +1,225 @@
+package io.github.bymartrixx.yarncli;
+
+import io.github.bymartrixx.yarncli.object.HistoryEntry;
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistoryIndexTest {
+    private static final String OLD_TINY = "c\ta\tnet/minecraft/class_1\tnet/minecraft/Entity\n"
+            + "\tf\tI\ta\tfield_1\tage\n"
+            + "\tm\t()V\tb\tmethod_1\ttick\n"
+            + "c\tb\tnet/minecraft/class_2\tnet/minecraft/World\n";
+    private static final String NEW_TINY = "c\tb\tnet/minecraft/class_1\tnet/minecraft/entity/Entity\n"
+            + "\tm\t()V\ta\tmethod_1\ttick\n"
+            + "c\tc\tnet/minecraft/class_3\tnet/minecraft/block/Block\n";
+    private static final String RENAMED_TINY = "c\ta\tnet/minecraft/class_1\tnet/minecraft/entity/LivingEntity\n"
+            + "c\tb\tnet/minecraft/class_2\tnet/minecraft/world/World\n";
+
+    private Path directory;
+    private Path path;
+    private VersionMappings oldMappings;
+    private VersionMappings newMappings;
+    private VersionMappings renamedMappings;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("yarncli-test");
+        this.path = this.directory.resolve(HistoryIndex.FILE_NAME);
+        this.oldMappings = TestMappings.open(this.directory, "old", OLD_TINY);
+        this.newMappings = TestMappings.open(this.directory, "new", NEW_TINY);
+        this.renamedMappings = TestMappings.open(this.directory, "renamed", RENAMED_TINY);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestMappings.delete(this.directory);
+    }
+
+    private static List<String> describe(List<HistoryEntry> entries) {
+        List<String> descriptions = new ArrayList<>();
+        for (HistoryEntry entry : entries) {
+            descriptions.add(entry.mcVersion + " " + entry.yarnVersion + " " + entry.official + " " + entry.named);
+        }
+
+        return descriptions;
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private void append(byte[] bytes) throws IOException {
+        Files.write(this.path, bytes, StandardOpenOption.APPEND);
+    }
+
+    @Test
+    public void storesNamesOfEveryVersion() throws IOException {
+        HistoryIndex index = new HistoryIndex(this.path);
+        index.add("1.16.5", "1.16.5+build.1", this.oldMappings);
+        index.add("1.17", "1.17+build.1", this.newMappings);
+
+        ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(this.path));
+        assertEquals(HistoryIndex.MAGIC, header.getInt());
+        assertEquals(HistoryIndex.FORMAT_VERSION, header.getInt());
+
+        // Read back from the file alone
+        HistoryIndex reread = new HistoryIndex(this.path);
+        assertEquals(Arrays.asList("1.16.5", "1.17"), new ArrayList<>(reread.getVersions()));
+        assertEquals(Arrays.asList("1.16.5 1.16.5+build.1 a net/minecraft/Entity", "1.17 1.17+build.1 b net/minecraft/entity/Entity"),
+                describe(reread.get(MappingsResult.Type.CLASS, 1)));
+        assertEquals(Arrays.asList("1.16.5 1.16.5+build.1 a age"), describe(reread.get(MappingsResult.Type.FIELD, 1)));
+        assertEquals(Arrays.asList("1.16.5 1.16.5+build.1 b tick", "1.17 1.17+build.1 a tick"),
+                describe(reread.get(MappingsResult.Type.METHOD, 1)));
+        assertEquals(Arrays.asList("1.17 1.17+build.1 c net/minecraft/block/Block"), describe(reread.get(MappingsResult.Type.CLASS, 3)));
+        assertTrue(reread.get(MappingsResult.Type.CLASS, 4).isEmpty());
+        assertTrue(reread.get(MappingsResult.Type.CLASS, -1).isEmpty());
+    }
+
+    @Test
+    public void skipsVersionsAlreadyIndexed() throws IOException {
+        HistoryIndex index = new HistoryIndex(this.path);
+        index.add("1.16.5", "1.16.5+build.1", this.oldMappings);
+        long size = Files.size(this.path);
+
+        index.add("1.16.5", "1.16.5+build.1", this.renamedMappings);
+        assertEquals(size, Files.size(this.path));
+    }
+
+    @Test
+    public void compactsVersionsIndexedAgain() throws IOException {
+        HistoryIndex index = new HistoryIndex(this.path);
+        index.add("1.16.5", "1.16.5+build.1", this.oldMappings);
+        index.add("1.17", "1.17+build.1", this.newMappings);
+        index.add("1.16.5", "1.16.5+build.2", this.renamedMappings);
+
+        // The same file as the one of an index that never had the old segment
+        Path expectedPath = this.directory.resolve("expected.yidx");
+        HistoryIndex expected = new HistoryIndex(expectedPath);
+        expected.add("1.17", "1.17+build.1", this.newMappings);
+        expected.add("1.16.5", "1.16.5+build.2", this.renamedMappings);
+        assertTrue("The old segment and its strings should be dropped",
+                Arrays.equals(Files.readAllBytes(expectedPath), Files.readAllBytes(this.path)));
+
+        assertEquals(Arrays.asList("1.17", "1.16.5"), new ArrayList<>(index.getVersions()));
+        assertEquals(Arrays.asList("1.17 1.17+build.1 b net/minecraft/entity/Entity", "1.16.5 1.16.5+build.2 a net/minecraft/entity/LivingEntity"),
+                describe(index.get(MappingsResult.Type.CLASS, 1)));
+        assertTrue(index.get(MappingsResult.Type.FIELD, 1).isEmpty());
+    }
+
+    @Test
+    public void overwritesTruncatedSegment() throws IOException {
+        HistoryIndex index = new HistoryIndex(this.path);
+        index.add("1.16.5", "1.16.5+build.1", this.oldMappings);
+        long oldSize = Files.size(this.path);
+        index.add("1.17", "1.17+build.1", this.newMappings);
+        long size = Files.size(this.path);
+
+        // As if the process writing the second segment was killed
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.WRITE)) {
+            channel.truncate(oldSize + 20);
+        }
+
+        HistoryIndex reread = new HistoryIndex(this.path);
+        assertEquals(Arrays.asList("1.16.5"), new ArrayList<>(reread.getVersions()));
+        assertEquals(1, reread.get(MappingsResult.Type.CLASS, 1).size());
+
+        reread.add("1.17", "1.17+build.1", this.newMappings);
+        assertEquals(Arrays.asList("1.16.5", "1.17"), new ArrayList<>(reread.getVersions()));
+        assertEquals(size, Files.size(this.path));
+    }
+
+    @Test
+    public void ignoresMalformedSegments() throws IOException {
+        HistoryIndex index = new HistoryIndex(this.path);
+        index.add("1.16.5", "1.16.5+build.1", this.oldMappings);
+        long size = Files.size(this.path);
+
+        // A segment with more rows than it has bytes for
+        ByteArrayOutputStream segment = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(segment);
+        writeString(output, "1.17");
+        writeString(output, "1.17+build.1");
+        output.writeInt(0);
+        output.writeInt(1_000_000);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream bytesOutput = new DataOutputStream(bytes);
+        bytesOutput.writeInt(0x5345474D);
+        bytesOutput.writeInt(segment.size());
+        segment.writeTo(bytesOutput);
+        this.append(bytes.toByteArray());
+
+        HistoryIndex reread = new HistoryIndex(this.path);
+        assertEquals(Arrays.asList("1.16.5"), new ArrayList<>(reread.getVersions()));
+
+        // A string longer than the segment
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+        this.append(ByteBuffer.allocate(12).putInt(0x5345474D).putInt(4).putInt(Integer.MAX_VALUE).array());
+        reread = new HistoryIndex(this.path);
+        assertEquals(Arrays.asList("1.16.5"), new ArrayList<>(reread.getVersions()));
+
+        // Not a segment at all
+        this.append(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        reread = new HistoryIndex(this.path);
+        assertEquals(Arrays.asList("1.16.5"), new ArrayList<>(reread.getVersions()));
+
+        reread.add("1.17", "1.17+build.1", this.newMappings);
+        assertEquals(Arrays.asList("1.16.5", "1.17"), new ArrayList<>(new HistoryIndex(this.path).getVersions()));
+    }
+
+    @Test
+    public void ignoresUnknownFormats() throws IOException {
+        Files.write(this.path, ByteBuffer.allocate(8).putInt(HistoryIndex.MAGIC).putInt(HistoryIndex.FORMAT_VERSION + 1).array());
+        HistoryIndex index = new HistoryIndex(this.path);
+        assertTrue(index.getVersions().isEmpty());
+
+        // Replaced by the current format
+        index.add("1.16.5", "1.16.5+build.1", this.oldMappings);
+        assertEquals(Arrays.asList("1.16.5"), new ArrayList<>(new HistoryIndex(this.path).getVersions()));
+    }
+
+    @Test
+    public void readsVersionsAddedByOthers() throws IOException {
+        HistoryIndex index = new HistoryIndex(this.path);
+        HistoryIndex other = new HistoryIndex(this.path);
+        assertTrue(other.getVersions().isEmpty());
+
+        index.add("1.16.5", "1.16.5+build.1", this.oldMappings);
+        assertEquals(Arrays.asList("1.16.5"), new ArrayList<>(other.getVersions()));
+
+        other.add("1.17", "1.17+build.1", this.newMappings);
+        assertEquals(Arrays.asList("1.16.5", "1.17"), new ArrayList<>(index.getVersions()));
+
+        // Compacting replaces the file
+        index.add("1.16.5", "1.16.5+build.2", this.renamedMappings);
+        assertEquals(Arrays.asList("1.17 1.17+build.1 b net/minecraft/entity/Entity", "1.16.5 1.16.5+build.2 a net/minecraft/entity/LivingEntity"),
+                describe(other.get(MappingsResult.Type.CLASS, 1)));
+
+        // Appending after the file was replaced by another instance
+        other.add("1.18", "1.18+build.1", this.oldMappings);
+        assertEquals(Arrays.asList("1.16.5 1.16.5+build.2 b net/minecraft/world/World", "1.18 1.18+build.1 b net/minecraft/World"),
+                describe(index.get(MappingsResult.Type.CLASS, 2)));
+        assertEquals(Arrays.asList("1.18 1.18+build.1 a age"), describe(index.get(MappingsResult.Type.FIELD, 1)));
+    }
+}
@@ -0,0 +1,89 @@
+package io.github.bymartrixx.yarncli;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MappingsCacheTest {
+    private Path directory;
+    private VersionMappings mappings;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("yarncli-test");
+        this.mappings = TestMappings.open(this.directory, "mappings", "c\ta\tnet/minecraft/class_1\tnet/minecraft/Entity\n");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestMappings.delete(this.directory);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        MappingsCache cache = new MappingsCache(2);
+        assertTrue(cache.put("1.16.5", this.mappings));
+        assertTrue(cache.put("1.17", this.mappings));
+        assertSame(this.mappings, cache.get("1.16.5"));
+        assertTrue(cache.put("1.18", this.mappings));
+
+        assertTrue(cache.contains("1.16.5"));
+        assertFalse(cache.contains("1.17"));
+        assertTrue(cache.contains("1.18"));
+        assertNull(cache.get("1.17"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // Replacing a cached version doesn't evict another
+        assertTrue(cache.put("1.18", this.mappings));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    public void keepsPinnedVersion() {
+        MappingsCache cache = new MappingsCache(2);
+        cache.pin("1.16.5");
+        cache.put("1.16.5", this.mappings);
+        cache.put("1.17", this.mappings);
+        cache.get("1.17");
+        assertTrue(cache.put("1.18", this.mappings));
+
+        assertTrue("The pinned version was evicted", cache.contains("1.16.5"));
+        assertFalse(cache.contains("1.17"));
+        assertTrue(cache.contains("1.18"));
+        assertEquals(0, cache.getUncached());
+    }
+
+    @Test
+    public void countsVersionsNotCachedForPinnedVersion() {
+        MappingsCache cache = new MappingsCache(1);
+        cache.pin("1.16.5");
+        assertTrue(cache.put("1.16.5", this.mappings));
+
+        // Only the pinned version could make room
+        assertFalse(cache.put("1.17", this.mappings));
+        assertFalse(cache.contains("1.17"));
+        assertTrue(cache.contains("1.16.5"));
+        assertEquals(1, cache.size());
+        assertEquals(0, cache.getEvictions());
+        assertEquals(1, cache.getUncached());
+
+        cache.pin("1.17");
+        assertTrue(cache.put("1.17", this.mappings));
+        assertFalse(cache.contains("1.16.5"));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, cache.getUncached());
+    }
+}
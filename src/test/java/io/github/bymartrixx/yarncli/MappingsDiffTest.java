@@ -0,0 +1,90 @@
+package io.github.bymartrixx.yarncli;
+
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class MappingsDiffTest {
+    private Path directory;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("yarncli-test");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestMappings.delete(this.directory);
+    }
+
+    private List<String> diff(VersionMappings from, VersionMappings to) {
+        List<String> changes = new ArrayList<>();
+        new MappingsDiff(from, to).run(new MappingsDiff.Listener() {
+            @Override
+            public void added(MappingsResult result) {
+                changes.add("+ " + name(result));
+            }
+
+            @Override
+            public void removed(MappingsResult result) {
+                changes.add("- " + name(result));
+            }
+
+            @Override
+            public void renamed(MappingsResult from, MappingsResult to) {
+                changes.add("~ " + name(from) + " -> " + name(to));
+            }
+        });
+        return changes;
+    }
+
+    private static String name(MappingsResult result) {
+        return result.memberNames == null ? result.classNames.named : result.classNames.named + "." + result.memberNames.named;
+    }
+
+    @Test
+    public void joinsClassesInAnyFileOrder() throws IOException {
+        // The classes of each file are out of intermediary order, and in a different order in each
+        VersionMappings from = TestMappings.open(this.directory, "from",
+                "c\tc\tnet/minecraft/class_10\tnet/minecraft/World\n"
+                        + "\tm\t()V\ta\tmethod_5\ttick\n"
+                        + "\tm\t()V\tb\tmethod_2\trender\n"
+                        + "c\ta\tnet/minecraft/class_2\tnet/minecraft/Entity\n"
+                        + "\tf\tI\ta\tfield_7\tage\n"
+                        + "c\tb\tnet/minecraft/class_5\tnet/minecraft/Block\n");
+        VersionMappings to = TestMappings.open(this.directory, "to",
+                "c\ta\tnet/minecraft/class_2\tnet/minecraft/entity/Entity\n"
+                        + "\tf\tI\ta\tfield_7\tage\n"
+                        + "c\td\tnet/minecraft/class_11\tnet/minecraft/Item\n"
+                        + "c\tc\tnet/minecraft/class_10\tnet/minecraft/World\n"
+                        + "\tm\t()V\tb\tmethod_2\tdraw\n"
+                        + "\tm\t()V\ta\tmethod_5\ttick\n");
+
+        assertEquals(Arrays.asList(
+                "~ net/minecraft/Entity -> net/minecraft/entity/Entity",
+                "- net/minecraft/Block",
+                "+ net/minecraft/Item",
+                "~ net/minecraft/World.render -> net/minecraft/World.draw"), this.diff(from, to));
+    }
+
+    @Test
+    public void reportsNothingForTheSameMappings() throws IOException {
+        VersionMappings mappings = TestMappings.open(this.directory, "same",
+                "c\tb\tnet/minecraft/class_3\tnet/minecraft/World\n"
+                        + "c\ta\tnet/minecraft/class_1\tnet/minecraft/Entity\n"
+                        + "\tm\t()V\ta\tmethod_9\ttick\n"
+                        + "\tm\t()V\tb\tmethod_4\trender\n");
+
+        assertEquals(new ArrayList<String>(), this.diff(mappings, mappings));
+    }
+}
@@ -0,0 +1,172 @@
+package io.github.bymartrixx.yarncli;
+
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+import net.fabricmc.mapping.tree.ClassDef;
+import net.fabricmc.mapping.tree.FieldDef;
+import net.fabricmc.mapping.tree.MethodDef;
+import net.fabricmc.mapping.tree.TinyTree;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Converts the benchmark fixture to a mappings file and reads it back.
+ */
+public class MappingsFileTest {
+    private Path directory;
+    private Path tinyPath;
+    private Path path;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("yarncli-test");
+        this.tinyPath = this.directory.resolve("fixture.tiny");
+        this.path = this.directory.resolve("fixture" + MappingsFile.EXTENSION);
+        try (InputStream inputStream = MappingsFileTest.class.getResourceAsStream("/fixture.tiny")) {
+            Files.copy(inputStream, this.tinyPath);
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestMappings.delete(this.directory);
+    }
+
+    private TinyTree parseFixture() throws IOException {
+        try (InputStream inputStream = Files.newInputStream(this.tinyPath)) {
+            return MappingsFile.parse(inputStream, null).tree;
+        }
+    }
+
+    private static int number(String intermediary) {
+        return Integer.parseInt(intermediary.substring(intermediary.lastIndexOf('_') + 1));
+    }
+
+    @Test
+    public void readsBackEveryName() throws IOException {
+        TinyTree tree = this.parseFixture();
+        VersionMappings mappings = MappingsFile.open(this.path, this.tinyPath);
+        assertTrue(Files.isRegularFile(this.path));
+        assertEquals(tree.getClasses().size(), mappings.getCount(MappingsResult.Type.CLASS));
+
+        int fieldCount = 0;
+        int methodCount = 0;
+        for (ClassDef classDef : tree.getClasses()) {
+            int classId = mappings.findIntermediary(MappingsResult.Type.CLASS, number(classDef.getName(MappingsManager.NS_INTERMEDIARY)));
+            assertEquals(classDef.getName(MappingsManager.NS_OFFICIAL), mappings.getName(MappingsResult.Type.CLASS, classId, 0));
+            assertEquals(classDef.getName(MappingsManager.NS_INTERMEDIARY), mappings.getName(MappingsResult.Type.CLASS, classId, 1));
+            assertEquals(classDef.getName(MappingsManager.NS_NAMED), mappings.getName(MappingsResult.Type.CLASS, classId, 2));
+
+            String named = classDef.getName(MappingsManager.NS_NAMED);
+            ResultList classes = mappings.getClasses(named.substring(named.lastIndexOf('/') + 1));
+            assertTrue(named, classes.stream().anyMatch(result -> result.classNames.named.equals(named)));
+
+            for (FieldDef fieldDef : classDef.getFields()) {
+                int id = mappings.findIntermediary(MappingsResult.Type.FIELD, number(fieldDef.getName(MappingsManager.NS_INTERMEDIARY)));
+                assertEquals(classId, mappings.getOwner(MappingsResult.Type.FIELD, id));
+                assertEquals(fieldDef.getName(MappingsManager.NS_OFFICIAL), mappings.getName(MappingsResult.Type.FIELD, id, 0));
+                assertEquals(fieldDef.getName(MappingsManager.NS_NAMED), mappings.getName(MappingsResult.Type.FIELD, id, 2));
+                assertEquals(fieldDef.getDescriptor(MappingsManager.NS_NAMED), mappings.getDescriptor(MappingsResult.Type.FIELD, id));
+                assertTrue(mappings.getFields(fieldDef.getName(MappingsManager.NS_NAMED)).stream()
+                        .anyMatch(result -> result.classNames.named.equals(named)));
+                fieldCount++;
+            }
+
+            for (MethodDef methodDef : classDef.getMethods()) {
+                int id = mappings.findIntermediary(MappingsResult.Type.METHOD, number(methodDef.getName(MappingsManager.NS_INTERMEDIARY)));
+                assertEquals(classId, mappings.getOwner(MappingsResult.Type.METHOD, id));
+                assertEquals(methodDef.getName(MappingsManager.NS_OFFICIAL), mappings.getName(MappingsResult.Type.METHOD, id, 0));
+                assertEquals(methodDef.getName(MappingsManager.NS_NAMED), mappings.getName(MappingsResult.Type.METHOD, id, 2));
+                assertEquals(methodDef.getDescriptor(MappingsManager.NS_NAMED), mappings.getDescriptor(MappingsResult.Type.METHOD, id));
+                assertTrue(mappings.getMethods(methodDef.getName(MappingsManager.NS_INTERMEDIARY)).stream()
+                        .anyMatch(result -> result.classNames.named.equals(named)));
+                methodCount++;
+            }
+        }
+
+        assertEquals(fieldCount, mappings.getCount(MappingsResult.Type.FIELD));
+        assertEquals(methodCount, mappings.getCount(MappingsResult.Type.METHOD));
+        assertTrue(mappings.getClasses("NotInTheFixture").isEmpty());
+    }
+
+    @Test
+    public void reusesUpToDateFile() throws IOException {
+        MappingsFile.open(this.path, this.tinyPath);
+        byte[] bytes = Files.readAllBytes(this.path);
+        FileTime written = FileTime.fromMillis(1000);
+        Files.setLastModifiedTime(this.path, written);
+
+        // The header records the source, so the file is only mapped again
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        assertEquals(MappingsFile.MAGIC, header.getInt(0));
+        assertEquals(MappingsFile.FORMAT_VERSION, header.getInt(4));
+        assertEquals(Files.size(this.tinyPath), header.getLong(8));
+        assertEquals(Files.getLastModifiedTime(this.tinyPath).toMillis(), header.getLong(16));
+
+        MappingsFile.open(this.path, this.tinyPath);
+        assertEquals("The file should not be written again", written, Files.getLastModifiedTime(this.path));
+        assertArrayEquals(bytes, Files.readAllBytes(this.path));
+    }
+
+    @Test
+    public void convertsOtherFormatVersions() throws IOException {
+        MappingsFile.open(this.path, this.tinyPath);
+        byte[] bytes = Files.readAllBytes(this.path);
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, MappingsFile.FORMAT_VERSION + 1), 4);
+        }
+
+        try {
+            new VersionMappings(ByteBuffer.wrap(Files.readAllBytes(this.path)));
+            fail("Another format version should be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        assertEquals(this.parseFixture().getClasses().size(), MappingsFile.open(this.path, this.tinyPath).getCount(MappingsResult.Type.CLASS));
+        assertArrayEquals(bytes, Files.readAllBytes(this.path));
+    }
+
+    @Test
+    public void convertsTruncatedFiles() throws IOException {
+        MappingsFile.open(this.path, this.tinyPath);
+        byte[] bytes = Files.readAllBytes(this.path);
+
+        // Cut in the string data, in a section and in the header
+        for (int length : new int[]{bytes.length - 1, bytes.length / 2, MappingsFile.HEADER_SIZE, 10, 0}) {
+            try {
+                new VersionMappings(ByteBuffer.wrap(Arrays.copyOf(bytes, length)));
+                fail("A file truncated to " + length + " bytes should be rejected");
+            } catch (IllegalArgumentException expected) {
+            }
+
+            Files.write(this.path, Arrays.copyOf(bytes, length));
+            VersionMappings mappings = MappingsFile.open(this.path, this.tinyPath);
+            assertArrayEquals("Converted again after truncating to " + length, bytes, Files.readAllBytes(this.path));
+            assertEquals(this.parseFixture().getClasses().size(), mappings.getCount(MappingsResult.Type.CLASS));
+        }
+    }
+
+    @Test
+    public void convertsChangedSource() throws IOException {
+        VersionMappings mappings = TestMappings.open(this.directory, "changed", "c\ta\tnet/minecraft/class_1\tnet/minecraft/Entity\n");
+        assertEquals("net/minecraft/Entity", mappings.getName(MappingsResult.Type.CLASS, 0, 2));
+
+        mappings = TestMappings.open(this.directory, "changed", "c\ta\tnet/minecraft/class_1\tnet/minecraft/entity/LivingEntity\n");
+        assertEquals("net/minecraft/entity/LivingEntity", mappings.getName(MappingsResult.Type.CLASS, 0, 2));
+    }
+}
@@ -0,0 +1,179 @@
+package io.github.bymartrixx.yarncli;
+
+import com.google.gson.Gson;
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Loads, queries and prefetches a few versions from many threads at once, against a version resolver that only counts
+ * loads and mappings stored in a temporary directory, so nothing is downloaded.
+ */
+public class MappingsManagerConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int ITERATIONS = 100;
+    private static final List<String> VERSIONS = Arrays.asList("1.14.4", "1.15.2", "1.16.5", "1.17.1");
+    private static final String TINY = "tiny\t2\t0\tofficial\tintermediary\tnamed\n"
+            + "c\ta\tnet/minecraft/class_1\tnet/minecraft/entity/Entity\n"
+            + "\tf\tI\ta\tfield_1\tage\n"
+            + "\tm\t()V\tb\tmethod_1\ttick\n"
+            + "c\tb\tnet/minecraft/class_2\tnet/minecraft/world/World\n";
+
+    private Path mappingsPath;
+    /**
+     * The number of times each version was loaded, and is being loaded.
+     */
+    private final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> runningLoads = new ConcurrentHashMap<>();
+    private final Queue<String> failures = new ConcurrentLinkedQueue<>();
+
+    @Before
+    public void setUp() throws IOException {
+        this.mappingsPath = Files.createTempDirectory("yarncli-test");
+        for (String version : VERSIONS) {
+            Files.write(this.mappingsPath.resolve(yarnVersion(version) + ".tiny"), TINY.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(this.mappingsPath)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(this.mappingsPath);
+    }
+
+    private static String yarnVersion(String mcVersion) {
+        return mcVersion + "+build.1";
+    }
+
+    private MappingsManager createManager(MappingsCache cache) {
+        VersionResolver versionResolver = new VersionResolver(new Gson(), null, "", "", null, 0) {
+            @Override
+            public String getLatestYarnVersion(String mcVersion) {
+                loads.computeIfAbsent(mcVersion, version -> new AtomicInteger()).incrementAndGet();
+                AtomicInteger running = runningLoads.computeIfAbsent(mcVersion, version -> new AtomicInteger());
+                if (running.incrementAndGet() > 1) {
+                    failures.add(mcVersion + " was loaded twice at once");
+                }
+
+                try {
+                    Thread.sleep(20); // Leave time for other threads to ask for the version
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                running.decrementAndGet();
+                return yarnVersion(mcVersion);
+            }
+        };
+
+        return new MappingsManager(new Downloader(), versionResolver, cache, null, this.mappingsPath);
+    }
+
+    /**
+     * Runs {@link #ITERATIONS} loads or queries of the versions on each of {@link #THREADS} threads, all started at
+     * once.
+     */
+    private void hammer(MappingsManager mappingsManager, MappingsCache cache, List<String> versions) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+        for (int i = 0; i < THREADS; i++) {
+            int offset = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < ITERATIONS; j++) {
+                        String version = versions.get((offset + j) % versions.size());
+                        if (j % 2 == 0) {
+                            if (mappingsManager.openMappingsAsync(version).join() == null) {
+                                failures.add("No mappings for " + version);
+                            }
+                        } else {
+                            List<MappingsResult> results = mappingsManager.getMappings(version, MappingsResult.Type.CLASS, "Entity");
+                            if (results == null || results.size() != 1) {
+                                failures.add("Unexpected results for " + version + ": " + results);
+                            }
+                        }
+
+                        if (cache.size() > cache.getMaxVersions()) {
+                            failures.add(cache.size() + " versions cached");
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e.toString());
+                }
+            });
+            threads[i].start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    @Test
+    public void loadsEachVersionOnce() throws InterruptedException {
+        List<String> versions = VERSIONS.subList(0, 3);
+        MappingsCache cache = new MappingsCache(versions.size());
+        this.hammer(this.createManager(cache), cache, versions);
+
+        assertTrue(this.failures.toString(), this.failures.isEmpty());
+        for (String version : versions) {
+            assertEquals("Loads of " + version, 1, this.loads.get(version).get());
+        }
+        assertEquals(versions.size(), cache.size());
+    }
+
+    @Test
+    public void prefetchesAlongsideLoads() throws InterruptedException {
+        MappingsCache cache = new MappingsCache(2);
+        MappingsManager mappingsManager = this.createManager(cache);
+        Thread prefetcher = new Thread(() -> {
+            for (int i = 0; i < 5; i++) {
+                List<String> failed = mappingsManager.prefetch(VERSIONS);
+                if (!failed.isEmpty()) {
+                    failures.add("Prefetch failed for " + failed);
+                }
+            }
+        });
+        prefetcher.start();
+        this.hammer(mappingsManager, cache, VERSIONS);
+        prefetcher.join();
+
+        assertTrue(this.failures.toString(), this.failures.isEmpty());
+        assertTrue(cache.size() <= cache.getMaxVersions());
+    }
+
+    @Test
+    public void staysBoundedWhileEvicting() throws InterruptedException {
+        MappingsCache cache = new MappingsCache(2);
+        this.hammer(this.createManager(cache), cache, VERSIONS);
+
+        assertTrue(this.failures.toString(), this.failures.isEmpty());
+        assertTrue(cache.size() <= cache.getMaxVersions());
+        assertFalse("Nothing was evicted", cache.getEvictions() == 0);
+    }
+}
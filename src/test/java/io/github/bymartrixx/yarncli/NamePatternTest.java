@@ -0,0 +1,146 @@
+package io.github.bymartrixx.yarncli;
+
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Matches a table of patterns against a few names, comparing the results with {@link java.util.regex}.
+ */
+public class NamePatternTest {
+    private static final String[] NAMES = {
+            "", "a", "ab", "abc", "abab", "aaa", "abbc", "ac", "get", "get2", "getPos", "getBlockPos", "get_x", "set_x",
+            "isGet", "Entity", "EntityType", "LivingEntity", "class_1", "class_123", "method_1234", "field_12",
+            "net/minecraft/class_1", "net/minecraft/entity/Entity", "net/minecraft/entity/EntityType",
+            "com/example/Foo$Bar", "Foo$Bar", "a.b", "axb", "x y", "x\ty", "\u00fcber", "[a]"
+    };
+
+    /**
+     * Regular expression queries, the same for {@link Pattern}.
+     */
+    private static final String[] REGEXES = {
+            "", "a", "get.*Pos", "get[A-Z]\\w*", "(get|set)_?\\w+", "a(b|c)*", "[^/]+", "class_\\d+", "\\D+",
+            "net/.*/Entity", "^get$", "a+b?", "(?:ab)+", "((a|b)c?)+", "a*?", "[a-c]+", "[^a-c]+", "[\\d_a-z]+",
+            ".*\\$.*", "a\\.b", "a.b", "x\\sy", "\\S+", "\\W", "[a-]+", "\\[a\\]", "get|set_x|Entity", "(|a)b", "\u00fc.*"
+    };
+
+    /**
+     * Globs and the equivalent regular expressions.
+     */
+    private static final String[][] GLOBS = {
+            {"get*", "get[^/]*"},
+            {"*Entity*", "[^/]*Entity[^/]*"},
+            {"**Entity", ".*Entity"},
+            {"**/Entity*", ".*/Entity[^/]*"},
+            {"net/minecraft/*", "net/minecraft/[^/]*"},
+            {"class_?", "class_[^/]"},
+            {"class_???", "class_[^/][^/][^/]"},
+            {"?", "[^/]"},
+            {"*", "[^/]*"},
+            {"**", ".*"},
+            {"[gs]et*", "[gs]et[^/]*"},
+            {"[!gs]*", "[^gs][^/]*"},
+            {"[a-c]*", "[a-c][^/]*"},
+            {"*$Bar", "[^/]*\\$Bar"},
+            {"a.?", "a\\.[^/]"},
+            {"*(*", "[^/]*\\([^/]*"},
+    };
+
+    private static void assertMatchesLike(String query, String regex) {
+        NamePattern namePattern = NamePattern.compile(query);
+        Pattern pattern = Pattern.compile(regex);
+        for (String name : NAMES) {
+            boolean expected = pattern.matcher(name).matches();
+            assertEquals(query + " against " + name, expected, namePattern.matches(name));
+            // The same again, through the states built by the first match
+            assertEquals(query + " against " + name, expected, namePattern.matches(name));
+
+            if (expected) {
+                assertTrue(query + " matched " + name + " without the prefix " + namePattern.getLiteralPrefix(),
+                        name.startsWith(namePattern.getLiteralPrefix()));
+            }
+        }
+    }
+
+    @Test
+    public void matchesRegexesLikeJava() {
+        for (String regex : REGEXES) {
+            assertMatchesLike("/" + regex + "/", regex);
+        }
+    }
+
+    @Test
+    public void matchesGlobsLikeRegexes() {
+        for (String[] glob : GLOBS) {
+            assertTrue(glob[0], NamePattern.isPattern(glob[0]));
+            assertMatchesLike(glob[0], glob[1]);
+        }
+    }
+
+    @Test
+    public void recognizesPatterns() {
+        assertFalse(NamePattern.isPattern("Entity"));
+        assertFalse(NamePattern.isPattern("net/minecraft/Entity"));
+        assertFalse(NamePattern.isPattern("/"));
+        assertTrue(NamePattern.isPattern("/Entity/"));
+        assertTrue(NamePattern.isPattern("//"));
+
+        assertTrue(NamePattern.compile("net/*/Entity").hasSlash());
+        assertTrue(NamePattern.compile("/net\\/.*/").hasSlash());
+        assertFalse(NamePattern.compile("*Entity").hasSlash());
+        assertFalse(NamePattern.compile("/[^a]Entity/").hasSlash());
+    }
+
+    @Test
+    public void findsLiteralPrefixes() {
+        String[][] prefixes = {
+                {"get*", "get"},
+                {"**/Entity", ""},
+                {"net/minecraft/*", "net/minecraft/"},
+                {"class_?", "class_"},
+                {"Foo$Bar*", "Foo$Bar"},
+                {"a.?", "a."},
+                {"[gs]et*", ""},
+                {"/get.*Pos/", "get"},
+                {"/^abc$/", "abc"},
+                {"/abc/", "abc"},
+                {"/ab*c/", "a"},
+                {"/ab+c/", "a"},
+                {"/ab?c/", "a"},
+                {"/a\\.b.*/", "a.b"},
+                {"/a\\$b/", "a$b"},
+                {"/a[bc]/", "a"},
+                {"/a(b)/", "a"},
+                {"/\\d+/", ""},
+                {"/x\\sy/", "x"},
+                {"/(get|set)X/", ""},
+                {"/get|set/", ""},
+                {"/.*/", ""},
+        };
+
+        for (String[] prefix : prefixes) {
+            assertEquals(prefix[0], prefix[1], NamePattern.compile(prefix[0]).getLiteralPrefix());
+        }
+    }
+
+    @Test
+    public void rejectsInvalidPatterns() {
+        String[] invalid = {
+                "[abc", "get[*", "/(/", "/a)/", "/[a/", "/*a/", "/a|+/", "/a\\/", "/\\q/", "/[z-a]/", "/a{2}/",
+                "/a^b/", "/a$b/", "/[\\W]/", "/()+)/"
+        };
+
+        for (String query : invalid) {
+            try {
+                NamePattern.compile(query);
+                fail(query + " should be invalid");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+}
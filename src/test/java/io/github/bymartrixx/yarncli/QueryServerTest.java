@@ -0,0 +1,78 @@
+package io.github.bymartrixx.yarncli;
+
+import com.google.gson.Gson;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sends invalid requests to a server, which are answered before any mappings are loaded.
+ */
+public class QueryServerTest {
+    private Path mappingsPath;
+    private QueryServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        this.mappingsPath = Files.createTempDirectory("yarncli-test");
+        VersionResolver versionResolver = new VersionResolver(new Gson(), null, "", "", null, 0);
+        MappingsManager mappingsManager = new MappingsManager(new Downloader(), versionResolver, new MappingsCache(1), null, this.mappingsPath);
+        this.server = new QueryServer(mappingsManager, 0, 2);
+        this.server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.server.stop(0);
+        TestMappings.delete(this.mappingsPath);
+    }
+
+    /**
+     * @return the status and the error message
+     */
+    private String request(String method, String pathAndQuery) throws IOException {
+        URL url = new URL("http", this.server.getAddress().getHostString(), this.server.getAddress().getPort(), pathAndQuery);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        int status = connection.getResponseCode();
+        try (InputStream inputStream = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+             Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name()).useDelimiter("\\A")) {
+            return status + " " + (scanner.hasNext() ? scanner.next() : "");
+        }
+    }
+
+    @Test
+    public void rejectsMalformedEscapes() throws IOException {
+        // The JDK server may reject the URI itself, otherwise decoding the parameters fails
+        for (String pathAndQuery : new String[]{"/class?q=%zzEntity", "/search?q=Entity%", "/version?version=%-1"}) {
+            String response = this.request("GET", pathAndQuery);
+            assertTrue(response, response.startsWith("400 "));
+        }
+    }
+
+    @Test
+    public void rejectsInvalidPatterns() throws IOException {
+        String response = this.request("GET", "/method?q=%2Fget(%2F&version=1.16.5");
+        assertTrue(response, response.startsWith("400 {\"error\":\"Invalid pattern: "));
+    }
+
+    @Test
+    public void rejectsInvalidRequests() throws IOException {
+        assertEquals("400 {\"error\":\"Missing query parameter \\\"q\\\"\"}", this.request("GET", "/class"));
+        assertEquals("400 {\"error\":\"Invalid minecraft version specified: \\\"1.16.5;\\\"\"}", this.request("GET", "/class?q=Entity&version=1.16.5%3B"));
+        assertEquals("404 {\"error\":\"Not found\"}", this.request("GET", "/class/Entity"));
+        assertEquals("405 {\"error\":\"Only GET requests are supported\"}", this.request("DELETE", "/class?q=Entity"));
+    }
+}
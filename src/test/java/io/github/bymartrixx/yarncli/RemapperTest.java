@@ -0,0 +1,94 @@
+package io.github.bymartrixx.yarncli;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class RemapperTest {
+    private static final String TINY = "c\ta\tnet/minecraft/class_1\tnet/minecraft/entity/Entity\n"
+            + "\tf\tI\ta\tfield_1\tage\n"
+            + "\tm\t()V\tb\tmethod_1\ttick\n"
+            + "\tm\t(Lnet/minecraft/class_1;)V\tc\tmethod_2\tdamage\n"
+            + "c\tb\tnet/minecraft/class_2\tnet/minecraft/world/World\n"
+            + "c\ta$a\tnet/minecraft/class_1$class_3\tnet/minecraft/entity/Entity$Type\n";
+    private static final String SOURCE = "// Called from net.minecraft.class_1.method_1 and class_2\n"
+            + "String name = \"net/minecraft/class_2#method_2\";\n"
+            + "\tat net.minecraft.class_1$class_3.method_1(SourceFile:12)\n"
+            + "descriptor (ILnet/minecraft/class_1;)V and Lnet/minecraft/class_1$class_3;\n"
+            + "this.field_1 = xclass_1 + class_1a + class_99 + field_1_ + method_2;\n"
+            + "/* method_1234567890123 */";
+
+    private Path directory;
+    private VersionMappings mappings;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("yarncli-test");
+        this.mappings = TestMappings.open(this.directory, "mappings", TINY);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestMappings.delete(this.directory);
+    }
+
+    private String remap(String namespace, Reader reader, long expectedCount) throws IOException {
+        StringWriter writer = new StringWriter();
+        assertEquals("Names remapped", expectedCount, new Remapper(this.mappings, namespace).remap(reader, writer));
+        return writer.toString();
+    }
+
+    @Test
+    public void remapsToNamed() throws IOException {
+        assertEquals("// Called from net.minecraft.entity.Entity.tick and World\n"
+                        + "String name = \"net/minecraft/world/World#damage\";\n"
+                        + "\tat net.minecraft.entity.Entity$Type.tick(SourceFile:12)\n"
+                        + "descriptor (ILnet/minecraft/entity/Entity;)V and Lnet/minecraft/entity/Entity$Type;\n"
+                        + "this.age = xclass_1 + class_1a + class_99 + field_1_ + damage;\n"
+                        + "/* method_1234567890123 */",
+                this.remap(MappingsManager.NS_NAMED, new StringReader(SOURCE), 13));
+    }
+
+    @Test
+    public void remapsToOfficial() throws IOException {
+        assertEquals("// Called from a.b and b\n"
+                        + "String name = \"b#c\";\n"
+                        + "\tat a$a.b(SourceFile:12)\n"
+                        + "descriptor (ILa;)V and La$a;\n"
+                        + "this.a = xclass_1 + class_1a + class_99 + field_1_ + c;\n"
+                        + "/* method_1234567890123 */",
+                this.remap(MappingsManager.NS_OFFICIAL, new StringReader(SOURCE), 13));
+    }
+
+    @Test
+    public void remapsNamesSplitBetweenReads() throws IOException {
+        // Returns a few characters at a time, so identifiers are split between reads
+        Reader reader = new StringReader(SOURCE) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 3));
+            }
+        };
+
+        assertEquals(this.remap(MappingsManager.NS_NAMED, new StringReader(SOURCE), 13), this.remap(MappingsManager.NS_NAMED, reader, 13));
+    }
+
+    @Test
+    public void rejectsUnknownNamespaces() {
+        try {
+            new Remapper(this.mappings, "intermediary");
+            fail("Only named and official are supported");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package io.github.bymartrixx.yarncli;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Writes small {@code .tiny} files for tests and opens them.
+ */
+final class TestMappings {
+    static final String HEADER = "tiny\t2\t0\tofficial\tintermediary\tnamed\n";
+
+    private TestMappings() {
+    }
+
+    /**
+     * Writes {@code HEADER + body} to {@code <name>.tiny} in {@code directory} and opens it, converting it to
+     * {@code <name>.ymap}.
+     */
+    static VersionMappings open(Path directory, String name, String body) throws IOException {
+        Path tinyPath = directory.resolve(name + ".tiny");
+        Files.write(tinyPath, (HEADER + body).getBytes(StandardCharsets.UTF_8));
+        return MappingsFile.open(directory.resolve(name + MappingsFile.EXTENSION), tinyPath);
+    }
+
+    /**
+     * Deletes a directory and the files in it.
+     */
+    static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
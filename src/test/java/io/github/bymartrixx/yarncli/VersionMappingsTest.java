@@ -0,0 +1,57 @@
+package io.github.bymartrixx.yarncli;
+
+import io.github.bymartrixx.yarncli.object.MappingsResult;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class VersionMappingsTest {
+    private static final String TINY = "c\ta\tnet/minecraft/class_1\tnet/minecraft/entity/Entity\n"
+            + "\tf\tI\ta\tfield_1\tage\n"
+            + "\tm\t()V\tb\tmethod_1\ttick\n"
+            + "\tm\t()V\tc\tmethod_2\ttickRiding\n"
+            + "c\tb\tnet/minecraft/class_2\tnet/minecraft/entity/EntityType\n"
+            + "c\tc\tnet/minecraft/class_3\tnet/minecraft/world/World\n";
+
+    private Path directory;
+    private VersionMappings mappings;
+
+    @Before
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("yarncli-test");
+        this.mappings = TestMappings.open(this.directory, "mappings", TINY);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        TestMappings.delete(this.directory);
+    }
+
+    @Test
+    public void completesOnlyOncePrepared() {
+        assertNull("Completing should not build the index", this.mappings.complete(MappingsResult.Type.CLASS, "Ent", 10));
+
+        List<Runnable> tasks = new ArrayList<>();
+        Executor executor = tasks::add;
+        this.mappings.prepareCompletion(executor);
+        this.mappings.prepareCompletion(executor);
+        assertEquals("The indexes should be built once", 1, tasks.size());
+        assertNull(this.mappings.complete(MappingsResult.Type.CLASS, "Ent", 10));
+
+        tasks.get(0).run();
+        assertEquals(Arrays.asList("Entity", "EntityType"), this.mappings.complete(MappingsResult.Type.CLASS, "Ent", 10));
+        assertEquals(Arrays.asList("tick", "tickRiding"), this.mappings.complete(MappingsResult.Type.METHOD, "tick", 10));
+        assertEquals(Arrays.asList("field_1"), this.mappings.complete(MappingsResult.Type.FIELD, "field", 10));
+    }
+}
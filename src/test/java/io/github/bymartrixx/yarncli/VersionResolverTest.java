@@ -0,0 +1,154 @@
+package io.github.bymartrixx.yarncli;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs {@link VersionResolver} against a local stand-in for the Fabric meta server.
+ */
+public class VersionResolverTest {
+    private static final String YARN_VERSION = "1.16.5+build.10";
+    private static final String BODY = "[{\"gameVersion\":\"1.16.5\",\"separator\":\"+build.\",\"build\":10,\"maven\":\"net.fabricmc:yarn:"
+            + YARN_VERSION + "\",\"version\":\"" + YARN_VERSION + "\",\"stable\":true}]";
+    private static final String ETAG = "\"yarn-1.16.5-10\"";
+    private static final String LAST_MODIFIED = "Wed, 21 Oct 2020 07:28:00 GMT";
+    private static final long TTL = TimeUnit.HOURS.toMillis(1);
+
+    private HttpServer server;
+    private CloseableHttpClient client;
+    private Path cacheDir;
+    private Path cacheFile;
+
+    private final AtomicInteger requests = new AtomicInteger();
+    /**
+     * The status the server responds with. {@code 200} sends {@link #BODY}, anything else sends no body.
+     */
+    private volatile int status = 200;
+    private volatile Headers lastRequestHeaders;
+
+    @Before
+    public void setUp() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/yarn/", exchange -> {
+            this.requests.incrementAndGet();
+            this.lastRequestHeaders = exchange.getRequestHeaders();
+
+            int status = this.status;
+            if (status == 200) {
+                byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("ETag", ETAG);
+                exchange.getResponseHeaders().set("Last-Modified", LAST_MODIFIED);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream outputStream = exchange.getResponseBody()) {
+                    outputStream.write(body);
+                }
+            } else {
+                exchange.sendResponseHeaders(status, -1);
+            }
+
+            exchange.close();
+        });
+        this.server.start();
+
+        this.client = HttpClients.createDefault();
+        this.cacheDir = Files.createTempDirectory("yarncli-test");
+        this.cacheFile = this.cacheDir.resolve("versions.json");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        this.server.stop(0);
+        this.client.close();
+
+        try (Stream<Path> files = Files.list(this.cacheDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(this.cacheDir);
+    }
+
+    private VersionResolver createResolver(long ttl) {
+        String baseUrl = "http://" + this.server.getAddress().getHostString() + ":" + this.server.getAddress().getPort();
+        return new VersionResolver(new Gson(), this.client, baseUrl + "/yarn/{VERSION}", baseUrl + "/manifest", this.cacheFile, ttl);
+    }
+
+    @Test
+    public void fetchesFreshResponse() throws IOException {
+        assertEquals(YARN_VERSION, this.createResolver(TTL).getLatestYarnVersion("1.16.5"));
+        assertEquals(1, this.requests.get());
+        assertTrue("The response should be persisted", Files.isRegularFile(this.cacheFile));
+    }
+
+    @Test
+    public void usesCachedResponseWithinTtl() throws IOException {
+        VersionResolver resolver = this.createResolver(TTL);
+        resolver.getLatestYarnVersion("1.16.5");
+        assertEquals(YARN_VERSION, resolver.getLatestYarnVersion("1.16.5"));
+        assertEquals(1, this.requests.get());
+
+        // A new resolver reads the persisted response
+        assertEquals(YARN_VERSION, this.createResolver(TTL).getLatestYarnVersion("1.16.5"));
+        assertEquals(1, this.requests.get());
+    }
+
+    @Test
+    public void revalidatesStaleResponse() throws IOException {
+        VersionResolver resolver = this.createResolver(0);
+        resolver.getLatestYarnVersion("1.16.5");
+
+        this.status = 304;
+        assertEquals(YARN_VERSION, resolver.getLatestYarnVersion("1.16.5"));
+        assertEquals(2, this.requests.get());
+        assertEquals(ETAG, this.lastRequestHeaders.getFirst("If-None-Match"));
+        assertEquals(LAST_MODIFIED, this.lastRequestHeaders.getFirst("If-Modified-Since"));
+
+        // The revalidated response keeps its validators
+        assertEquals(YARN_VERSION, resolver.getLatestYarnVersion("1.16.5"));
+        assertEquals(ETAG, this.lastRequestHeaders.getFirst("If-None-Match"));
+    }
+
+    @Test
+    public void fallsBackToStaleResponseOnServerError() throws IOException {
+        VersionResolver resolver = this.createResolver(0);
+        resolver.getLatestYarnVersion("1.16.5");
+
+        this.status = 500;
+        assertEquals(YARN_VERSION, resolver.getLatestYarnVersion("1.16.5"));
+        assertEquals(2, this.requests.get());
+    }
+
+    @Test
+    public void fallsBackToPersistedResponseWhenOffline() throws IOException {
+        this.createResolver(0).getLatestYarnVersion("1.16.5");
+
+        this.server.stop(0);
+        assertEquals(YARN_VERSION, this.createResolver(0).getLatestYarnVersion("1.16.5"));
+    }
+
+    @Test(expected = IOException.class)
+    public void failsWithoutCachedResponse() throws IOException {
+        this.status = 500;
+        this.createResolver(TTL).getLatestYarnVersion("1.16.5");
+    }
+}